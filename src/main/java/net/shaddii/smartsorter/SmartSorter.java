@@ -1,6 +1,7 @@
 package net.shaddii.smartsorter;
 
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.CommonLifecycleEvents;
 import net.fabricmc.fabric.api.event.player.UseBlockCallback;
 import net.fabricmc.fabric.api.itemgroup.v1.FabricItemGroup;
 import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
@@ -8,6 +9,8 @@ import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
 import net.fabricmc.fabric.api.object.builder.v1.block.entity.FabricBlockEntityTypeBuilder;
 
 import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
+import net.fabricmc.fabric.api.transfer.v1.item.ItemStorage;
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
 import net.minecraft.block.AbstractBlock;
 import net.minecraft.block.Block;
 import net.minecraft.block.entity.BlockEntityType;
@@ -34,8 +37,11 @@ import net.shaddii.smartsorter.item.LinkingToolItem;
 import net.shaddii.smartsorter.network.*;
 import net.shaddii.smartsorter.network.ProbeConfigBatchPayload;
 import net.shaddii.smartsorter.screen.StorageControllerScreenHandler;
+import net.shaddii.smartsorter.screen.ViewerSyncQueue;
 import net.shaddii.smartsorter.util.CategoryManager;
+import net.shaddii.smartsorter.util.LinkValidation;
 import net.shaddii.smartsorter.util.ProcessProbeConfig;
+import net.shaddii.smartsorter.util.TagIndex;
 
 // import static com.mojang.text2speech.Narrator.LOGGER;
 
@@ -66,6 +72,8 @@ public class SmartSorter implements ModInitializer {
 
     @Override
     public void onInitialize() {
+        SmartSorterConfig.load();
+
         registerBlocks();
         registerItems();
         registerBlockEntities();
@@ -75,6 +83,9 @@ public class SmartSorter implements ModInitializer {
         registerNetworkPayloads();
         registerNetworkHandlers();
         registerEvents();
+        SmartSorterScheduler.register();
+        ViewerSyncQueue.register();
+        LinkValidation.register();
 
         // egister the category manager
         ResourceManagerHelper.get(ResourceType.SERVER_DATA)
@@ -150,6 +161,11 @@ public class SmartSorter implements ModInitializer {
         PROCESS_PROBE_BE_TYPE = Registry.register(
                 Registries.BLOCK_ENTITY_TYPE, id("process_probe"),
                 FabricBlockEntityTypeBuilder.create(ProcessProbeBlockEntity::new, PROCESS_PROBE_BLOCK).build());
+
+        // Pipes and hoppers can push into intakes directly (routed on insert, no polling)
+        ItemStorage.SIDED.registerForBlockEntity((intake, direction) -> intake.getItemStorage(), INTAKE_BE_TYPE);
+        // The whole network as one aggregated storage (takes precedence over the empty Inventory)
+        ItemStorage.SIDED.registerForBlockEntity((controller, direction) -> controller.getItemStorage(), STORAGE_CONTROLLER_BE_TYPE);
     }
 
     // ------------------------------------------------------
@@ -200,6 +216,12 @@ public class SmartSorter implements ModInitializer {
         PayloadTypeRegistry.playS2C().register(
                 StorageControllerSyncPacket.SyncPayload.ID_PAYLOAD,
                 StorageControllerSyncPacket.SyncPayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(
+                StorageControllerSyncPacket.DeltaPayload.ID_PAYLOAD,
+                StorageControllerSyncPacket.DeltaPayload.CODEC);
+        PayloadTypeRegistry.playS2C().register(
+                StorageControllerSyncPacket.WindowPayload.ID_PAYLOAD,
+                StorageControllerSyncPacket.WindowPayload.CODEC);
 
         PayloadTypeRegistry.playC2S().register(StorageControllerScreenHandler.ExtractionRequestPayload.ID,
                 StorageControllerScreenHandler.ExtractionRequestPayload.CODEC);
@@ -209,6 +231,7 @@ public class SmartSorter implements ModInitializer {
                 StorageControllerScreenHandler.DepositRequestPayload.CODEC);
         PayloadTypeRegistry.playC2S().register(SortModeChangePayload.ID, SortModeChangePayload.CODEC);
         PayloadTypeRegistry.playC2S().register(FilterCategoryChangePayload.ID, FilterCategoryChangePayload.CODEC);
+        PayloadTypeRegistry.playC2S().register(ViewWindowPayload.ID, ViewWindowPayload.CODEC);
         PayloadTypeRegistry.playC2S().register(CollectXpPayload.ID, CollectXpPayload.CODEC);
         PayloadTypeRegistry.playC2S().register(ProbeConfigUpdatePayload.ID, ProbeConfigUpdatePayload.CODEC);
         PayloadTypeRegistry.playS2C().register(ProbeStatsSyncPayload.ID, ProbeStatsSyncPayload.CODEC);
@@ -222,10 +245,10 @@ public class SmartSorter implements ModInitializer {
                 (payload, context) -> context.server().execute(() -> {
                     ServerPlayerEntity player = context.player();
                     if (player.currentScreenHandler instanceof StorageControllerScreenHandler handler) {
-                        if (handler.controller != null) {
-                            // System.out.println("Server extracting: " + payload.variant() + " x" + payload.amount());
-                            handler.extractItem(payload.variant(), payload.amount(), payload.toInventory(), player);
-                            handler.sendNetworkUpdate(player); // ✅ Force sync
+                        ItemVariant variant = handler.resolveVariant(payload.variant());
+                        if (handler.controller != null && variant != null) {
+                            // System.out.println("Server extracting: " + variant + " x" + payload.amount());
+                            handler.extractItem(variant, payload.amount(), payload.toInventory(), player);
                         }
                     }
                 }));
@@ -236,11 +259,11 @@ public class SmartSorter implements ModInitializer {
                 (payload, context) -> context.server().execute(() -> {
                     ServerPlayerEntity player = context.player();
                     if (player.currentScreenHandler instanceof StorageControllerScreenHandler handler) {
-                        if (handler.controller != null) {
-                            ItemStack stack = payload.variant().toStack(payload.amount());
+                        ItemVariant variant = handler.resolveVariant(payload.variant());
+                        if (handler.controller != null && variant != null) {
+                            ItemStack stack = variant.toStack(payload.amount());
                             // System.out.println("Server depositing: " + stack);
                             handler.depositItem(stack, payload.amount(), player);
-                            handler.sendNetworkUpdate(player); // ✅ Force sync
                         }
                     }
                 }));
@@ -250,7 +273,7 @@ public class SmartSorter implements ModInitializer {
                 StorageControllerScreenHandler.SyncRequestPayload.ID,
                 (payload, context) -> context.server().execute(() -> {
                     if (context.player().currentScreenHandler instanceof StorageControllerScreenHandler handler) {
-                        handler.sendNetworkUpdate(context.player());
+                        handler.resync();
                     }
                 }));
 
@@ -260,7 +283,6 @@ public class SmartSorter implements ModInitializer {
                 (payload, context) -> context.server().execute(() -> {
                     if (context.player().currentScreenHandler instanceof StorageControllerScreenHandler handler) {
                         handler.setSortMode(payload.getSortMode());
-                        handler.sendNetworkUpdate(context.player());
                     }
                 }));
 
@@ -270,7 +292,17 @@ public class SmartSorter implements ModInitializer {
                 (payload, context) -> context.server().execute(() -> {
                     if (context.player().currentScreenHandler instanceof StorageControllerScreenHandler handler) {
                         handler.setFilterCategory(payload.getCategory());
-                        handler.sendNetworkUpdate(context.player());
+                    }
+                }));
+
+        // Windowed view (huge networks): sort, filter, search and visible range
+        ServerPlayNetworking.registerGlobalReceiver(
+                ViewWindowPayload.ID,
+                (payload, context) -> context.server().execute(() -> {
+                    if (context.player().currentScreenHandler instanceof StorageControllerScreenHandler handler) {
+                        handler.setView(payload.getSortMode(), payload.getCategory(), payload.search(),
+                                payload.offset(), payload.length());
+                        handler.markSyncDirty();
                     }
                 }));
 
@@ -302,7 +334,7 @@ public class SmartSorter implements ModInitializer {
                             );
 
                             // Sync updated XP back to client
-                            handler.sendNetworkUpdate(player);
+                            handler.markSyncDirty();
 
                             // LOGGER.info("Player {} collected {} XP from controller", player.getName().getString(), xp);
                         } else {
@@ -331,7 +363,7 @@ public class SmartSorter implements ModInitializer {
 
                             handler.controller.updateProbeConfig(config);
                             handler.controller.markDirty(); // ✅ Save to disk
-                            handler.sendNetworkUpdate(player);
+                            handler.markSyncDirty();
                         }
                     }
                 }
@@ -344,6 +376,9 @@ public class SmartSorter implements ModInitializer {
     // ------------------------------------------------------
     private void registerEvents() {
         UseBlockCallback.EVENT.register((player, world, hand, hit) -> ActionResult.PASS);
+
+        // Interned tag bitsets are only valid for the tags they were built from
+        CommonLifecycleEvents.TAGS_LOADED.register((registries, client) -> TagIndex.invalidate());
     }
 
     // ------------------------------------------------------
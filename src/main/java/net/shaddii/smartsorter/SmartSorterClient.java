@@ -22,6 +22,8 @@ import java.util.Map;
  * - Added markDirty() call to prevent unnecessary re-renders
  * - Added XP syncing from server to client
  * - Added cursor stack syncing
+ * - Item list arrives as one snapshot plus sequenced deltas
+ *   (or, for huge networks, as server-side pages)
  */
 public class SmartSorterClient implements ClientModInitializer {
 
@@ -41,12 +43,15 @@ public class SmartSorterClient implements ClientModInitializer {
                         if (context.player() != null &&
                                 context.player().currentScreenHandler instanceof StorageControllerScreenHandler handler) {
 
-                            // Update network items
-                            handler.updateNetworkItems(payload.items());
+                            // Replace network items (full snapshot)
+                            handler.applySnapshot(payload.sequence(), payload.items());
 
                             // Update stored XP
                             handler.updateStoredXp(payload.storedXp());
 
+                            // Update capacity counters
+                            handler.updateCapacity(payload.freeSlots(), payload.totalSlots());
+
                             // CLEAR configs first (empty map signals batches are coming)
                             handler.clearProbeConfigs();
 
@@ -65,6 +70,52 @@ public class SmartSorterClient implements ClientModInitializer {
                 }
         );
 
+        ClientPlayNetworking.registerGlobalReceiver(
+                StorageControllerSyncPacket.DeltaPayload.ID_PAYLOAD,
+                (payload, context) -> {
+                    context.client().execute(() -> {
+                        if (context.player() != null &&
+                                context.player().currentScreenHandler instanceof StorageControllerScreenHandler handler) {
+
+                            // Apply item changes (on a sequence gap this requests a new snapshot instead)
+                            handler.applyDelta(payload.sequence(), payload.changes());
+
+                            // XP, capacity and cursor are absolute values - always safe to apply
+                            handler.updateStoredXp(payload.storedXp());
+                            handler.updateCapacity(payload.freeSlots(), payload.totalSlots());
+                            handler.setCursorStack(payload.cursorStack());
+
+                            // Configs changed - batches follow
+                            if (payload.resetConfigs()) {
+                                handler.clearProbeConfigs();
+                            }
+
+                            if (context.client().currentScreen instanceof StorageControllerScreen screen) {
+                                screen.markDirty();
+                            }
+                        }
+                    });
+                }
+        );
+
+        ClientPlayNetworking.registerGlobalReceiver(
+                StorageControllerSyncPacket.WindowPayload.ID_PAYLOAD,
+                (payload, context) -> {
+                    context.client().execute(() -> {
+                        if (context.player() != null &&
+                                context.player().currentScreenHandler instanceof StorageControllerScreenHandler handler) {
+
+                            // Server-side view: just the visible page
+                            handler.applyWindow(payload.totalMatches(), payload.offset(), payload.entries());
+
+                            if (context.client().currentScreen instanceof StorageControllerScreen screen) {
+                                screen.markDirty();
+                            }
+                        }
+                    });
+                }
+        );
+
         ClientPlayNetworking.registerGlobalReceiver(
                 ProbeStatsSyncPayload.ID,
                 (payload, context) -> {
@@ -0,0 +1,101 @@
+package net.shaddii.smartsorter;
+
+import net.fabricmc.loader.api.FabricLoader;
+import net.shaddii.smartsorter.util.IntakeThroughput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Server-side settings, stored in config/smartsorter.properties.
+ * Missing keys are filled with defaults and written back on load.
+ */
+public final class SmartSorterConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger("smartsorter");
+    private static final String FILE_NAME = "smartsorter.properties";
+
+    private SmartSorterConfig() {}
+
+    /** Tier newly placed intakes start with. */
+    public static IntakeThroughput intakeDefaultTier = IntakeThroughput.STANDARD;
+    /** Highest tier any intake may run at, regardless of its own setting. */
+    public static IntakeThroughput intakeMaxTier = IntakeThroughput.BULK;
+    /** Stacks an intake can hold between pulling and routing (1-27). */
+    public static int intakeBufferSlots = 4;
+    /** Milliseconds per world tick the scheduler may spend; leftover work carries over. */
+    public static double schedulerBudgetMs = 2.0;
+    /** Networks with more variants than this are filtered, sorted and paged server-side (0 = never). */
+    public static int viewWindowThreshold = 5000;
+    /** Slots of its target an output probe re-checks per run; the rest follow on later runs. */
+    public static int probeVerifySlots = 27;
+
+    public static void load() {
+        Path path = FabricLoader.getInstance().getConfigDir().resolve(FILE_NAME);
+        Properties props = new Properties();
+
+        if (Files.exists(path)) {
+            try (Reader reader = Files.newBufferedReader(path)) {
+                props.load(reader);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to read {}, using defaults", path, e);
+            }
+        }
+
+        intakeDefaultTier = IntakeThroughput.fromString(
+                props.getProperty("intake.default_tier", intakeDefaultTier.asString()));
+        intakeMaxTier = IntakeThroughput.fromString(
+                props.getProperty("intake.max_tier", intakeMaxTier.asString()));
+        intakeBufferSlots = Math.max(1, Math.min(27,
+                parseInt(props.getProperty("intake.buffer_slots"), intakeBufferSlots)));
+        schedulerBudgetMs = Math.max(0.1,
+                parseDouble(props.getProperty("scheduler.budget_ms"), schedulerBudgetMs));
+        viewWindowThreshold = Math.max(0,
+                parseInt(props.getProperty("view.window_threshold"), viewWindowThreshold));
+        probeVerifySlots = Math.max(1,
+                parseInt(props.getProperty("probe.verify_slots"), probeVerifySlots));
+
+        save(path);
+    }
+
+    private static void save(Path path) {
+        Properties props = new Properties();
+        props.setProperty("intake.default_tier", intakeDefaultTier.asString());
+        props.setProperty("intake.max_tier", intakeMaxTier.asString());
+        props.setProperty("intake.buffer_slots", Integer.toString(intakeBufferSlots));
+        props.setProperty("scheduler.budget_ms", Double.toString(schedulerBudgetMs));
+        props.setProperty("view.window_threshold", Integer.toString(viewWindowThreshold));
+        props.setProperty("probe.verify_slots", Integer.toString(probeVerifySlots));
+
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            props.store(writer, "SmartSorter settings (intake tiers: standard, stack, bulk)");
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write {}", path, e);
+        }
+    }
+
+    private static double parseDouble(String value, double fallback) {
+        if (value == null) return fallback;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid number '{}' in {}, using {}", value, FILE_NAME, fallback);
+            return fallback;
+        }
+    }
+
+    private static int parseInt(String value, int fallback) {
+        if (value == null) return fallback;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Invalid number '{}' in {}, using {}", value, FILE_NAME, fallback);
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package net.shaddii.smartsorter;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerBlockEntityEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.World;
+import net.shaddii.smartsorter.util.ScheduledTicker;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Runs all SmartSorter block entity work for one ServerWorld.
+ *
+ * Block entities are queued by the tick they are next due. Each world tick,
+ * due entries run in order until the time budget
+ * ({@link SmartSorterConfig#schedulerBudgetMs}) is used up; whatever is left
+ * stays queued and, being overdue, runs first on the next tick. Work is
+ * spread out instead of spiking.
+ *
+ * Rescheduling (wake) is lazy: the old queue entry is marked cancelled and
+ * skipped when it surfaces.
+ */
+public final class SmartSorterScheduler {
+    private static final Map<ServerWorld, SmartSorterScheduler> SCHEDULERS = new IdentityHashMap<>();
+
+    // First run after load is spread over this many ticks (by position hash)
+    private static final int LOAD_STAGGER = 20;
+
+    private final ServerWorld world;
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(
+            Comparator.comparingLong((Entry e) -> e.dueTick).thenComparingLong(e -> e.sequence));
+    private final Map<BlockEntity, Entry> scheduled = new IdentityHashMap<>();
+    private long nextSequence = 0;
+
+    private static final class Entry {
+        final BlockEntity blockEntity;
+        final long dueTick;
+        final long sequence;
+        boolean cancelled;
+
+        Entry(BlockEntity blockEntity, long dueTick, long sequence) {
+            this.blockEntity = blockEntity;
+            this.dueTick = dueTick;
+            this.sequence = sequence;
+        }
+    }
+
+    private SmartSorterScheduler(ServerWorld world) {
+        this.world = world;
+    }
+
+    // ===================================================================
+    // SETUP
+    // ===================================================================
+
+    public static void register() {
+        ServerTickEvents.END_WORLD_TICK.register(world -> {
+            SmartSorterScheduler scheduler = SCHEDULERS.get(world);
+            if (scheduler != null) scheduler.tick();
+        });
+
+        ServerWorldEvents.UNLOAD.register((server, world) -> SCHEDULERS.remove(world));
+
+        // Placed or chunk-loaded block entities join the queue; removed/unloaded ones leave it
+        ServerBlockEntityEvents.BLOCK_ENTITY_LOAD.register((blockEntity, world) -> {
+            if (blockEntity instanceof ScheduledTicker) {
+                SCHEDULERS.computeIfAbsent(world, SmartSorterScheduler::new).add(blockEntity);
+            }
+        });
+        ServerBlockEntityEvents.BLOCK_ENTITY_UNLOAD.register((blockEntity, world) -> {
+            SmartSorterScheduler scheduler = SCHEDULERS.get(world);
+            if (scheduler != null) scheduler.remove(blockEntity);
+        });
+    }
+
+    // ===================================================================
+    // PUBLIC API
+    // ===================================================================
+
+    /**
+     * Run a block entity at the end of the current tick instead of waiting
+     * for its scheduled time (e.g. a sleeping intake's source changed)
+     */
+    public static void wake(BlockEntity blockEntity) {
+        World world = blockEntity.getWorld();
+        if (!(world instanceof ServerWorld serverWorld)) return;
+
+        SmartSorterScheduler scheduler = SCHEDULERS.get(serverWorld);
+        if (scheduler == null) return;
+
+        Entry current = scheduler.scheduled.get(blockEntity);
+        if (current == null) return; // not loaded (yet)
+
+        long now = serverWorld.getTime();
+        if (current.dueTick <= now) return;
+        scheduler.schedule(blockEntity, now);
+    }
+
+    // ===================================================================
+    // QUEUE
+    // ===================================================================
+
+    private void add(BlockEntity blockEntity) {
+        long stagger = Math.floorMod(blockEntity.getPos().hashCode(), LOAD_STAGGER);
+        schedule(blockEntity, world.getTime() + 1 + stagger);
+    }
+
+    private void remove(BlockEntity blockEntity) {
+        Entry entry = scheduled.remove(blockEntity);
+        if (entry != null) entry.cancelled = true;
+    }
+
+    private void schedule(BlockEntity blockEntity, long dueTick) {
+        Entry previous = scheduled.get(blockEntity);
+        if (previous != null) previous.cancelled = true;
+
+        Entry entry = new Entry(blockEntity, dueTick, nextSequence++);
+        scheduled.put(blockEntity, entry);
+        queue.add(entry);
+    }
+
+    private void tick() {
+        long now = world.getTime();
+        long budgetNanos = (long) (SmartSorterConfig.schedulerBudgetMs * 1_000_000.0);
+        long start = System.nanoTime();
+        boolean ranAny = false;
+
+        while (!queue.isEmpty()) {
+            Entry entry = queue.peek();
+            if (entry.dueTick > now) break;
+
+            // Out of budget - the rest carries over (always make some progress)
+            if (ranAny && System.nanoTime() - start >= budgetNanos) break;
+
+            queue.poll();
+            if (entry.cancelled) continue;
+
+            BlockEntity blockEntity = entry.blockEntity;
+            if (blockEntity.isRemoved() || blockEntity.getWorld() != world) {
+                scheduled.remove(blockEntity, entry);
+                continue;
+            }
+
+            int delay = ((ScheduledTicker) blockEntity).runScheduled(world);
+            ranAny = true;
+
+            // Woken or removed while running - that already decided what's next
+            if (entry.cancelled) continue;
+            schedule(blockEntity, now + Math.max(1, delay));
+        }
+    }
+}
@@ -6,6 +6,7 @@ import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
 import net.fabricmc.fabric.api.transfer.v1.storage.Storage;
 import net.fabricmc.fabric.api.transfer.v1.storage.StorageView;
 import net.fabricmc.fabric.api.transfer.v1.transaction.Transaction;
+import net.fabricmc.fabric.api.transfer.v1.transaction.TransactionContext;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.inventory.Inventory;
 import net.minecraft.item.ItemStack;
@@ -13,19 +14,21 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 import net.shaddii.smartsorter.block.IntakeBlock;
-import net.shaddii.smartsorter.block.OutputProbeBlock;
 import net.shaddii.smartsorter.blockentity.IntakeBlockEntity;
 import net.shaddii.smartsorter.blockentity.OutputProbeBlockEntity;
+import net.shaddii.smartsorter.util.DistributionMode;
 //import org.slf4j.Logger; // DEBUG: For debug logging
 //import org.slf4j.LoggerFactory; // DEBUG: For debug logging
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
  * Handles all logic for moving and routing items between SmartSorter blocks.
  * <p>
  * This class contains no persistent state — it only performs logic for:
- * - Pulling items from inventories into intake buffers.
+ * - Pulling items from inventories into intake ring buffers.
  * - Routing buffered items into connected outputs.
  */
 public final class StorageLogic {
@@ -33,141 +36,184 @@ public final class StorageLogic {
     private StorageLogic() {}
     //private static final Logger LOGGER = LoggerFactory.getLogger("SmartSorter/StorageLogic");
 
-    /** Maximum number of items an intake can pull per tick. */
-    private static final int MAX_PULL_PER_OP = 2;
-
     // ------------------------------------------------------------
     // 1) Pull logic: from facing inventory → intake buffer
     // ------------------------------------------------------------
-    public static void pullFromFacingIntoBuffer(IntakeBlockEntity intake) {
-        if (intake == null || intake.getWorld() == null || !intake.getBuffer().isEmpty()) return;
+    /**
+     * @param maxPerStack most items taken from one source stack (from the intake's throughput tier)
+     * @return true if a stack was pulled into a free buffer slot
+     */
+    public static boolean pullFromFacingIntoBuffer(IntakeBlockEntity intake, int maxPerStack) {
+        if (intake == null || intake.getWorld() == null || !intake.hasBufferSpace()) return false;
 
         World world = intake.getWorld();
-        Direction facing = intake.getCachedState().get(IntakeBlock.FACING);
-        BlockPos sourcePos = intake.getPos().offset(facing);
-
-        Storage<ItemVariant> fromStorage = locateItemStorage(world, sourcePos, facing.getOpposite());
-        if (fromStorage == null) return;
+        Storage<ItemVariant> fromStorage = findSourceStorage(intake);
+        if (fromStorage == null) return false;
 
         // Try to pull one matching stack that can be routed somewhere
         for (StorageView<ItemVariant> view : fromStorage) {
             if (view.isResourceBlank() || view.getAmount() == 0) continue;
 
             ItemVariant variant = view.getResource();
-            int toTake = Math.min(MAX_PULL_PER_OP, (int) Math.min(view.getAmount(), variant.getItem().getMaxCount()));
 
-            // Only pull items that have a valid destination
-            if (!canInsertAnywhere(world, intake, variant, toTake)) continue;
+            // OPTIMIZATION: Known to have no destination until an output changes
+            if (intake.isUnroutable(variant)) continue;
+
+            int toTake = Math.min(maxPerStack, (int) Math.min(view.getAmount(), variant.getItem().getMaxCount()));
 
             try (Transaction tx = Transaction.openOuter()) {
+                // Only pull items that have a valid destination
+                if (!canInsertAnywhere(world, intake, variant, toTake, tx)) {
+                    intake.markUnroutable(variant);
+                    continue;
+                }
+
                 long extracted = view.extract(variant, toTake, tx);
                 if (extracted > 0) {
-                    intake.setBuffer(variant.toStack((int) extracted));
+                    intake.offerToBuffer(variant.toStack((int) extracted));
                     tx.commit();
                     // DEBUG: LOGGER.debug("Pulled {}x {} into intake buffer at {}", extracted, variant.getItem(), intake.getPos());
-                    return;
+                    return true;
                 }
             }
         }
+        return false;
     }
 
     // ------------------------------------------------------------
     // 2) Routing logic: intake buffer → connected output probes
     // ------------------------------------------------------------
+    /**
+     * Route the next routable buffer slot. Slots nothing accepts are parked
+     * and the next one is tried, so one blocked variant doesn't stall the rest.
+     *
+     * @return true if anything moved
+     */
     public static boolean routeBuffer(World world, IntakeBlockEntity intake) {
-        ItemStack buffer = intake.getBuffer();
-        if (buffer.isEmpty()) return false;
+        for (int tries = 0; tries < intake.getBufferSize(); tries++) {
+            int slot = intake.nextRoutableSlot();
+            if (slot < 0) return false;
+
+            if (routeBufferSlot(world, intake, slot)) return true;
 
+            // Nothing accepted it - park until an output changes
+            intake.parkSlot(slot);
+            intake.markUnroutable(ItemVariant.of(intake.getBufferSlot(slot)));
+        }
+        return false;
+    }
+
+    private static boolean routeBufferSlot(World world, IntakeBlockEntity intake, int slot) {
+        ItemStack buffer = intake.getBufferSlot(slot);
         ItemVariant variant = ItemVariant.of(buffer);
         int remaining = buffer.getCount();
 
-        for (BlockPos probePos : intake.getOutputs()) {
-            BlockEntity target = world.getBlockEntity(probePos);
-            if (!(target instanceof OutputProbeBlockEntity probe)) continue;
-            if (!probe.accepts(variant)) continue;
-
-            int inserted = insertIntoInventoryFacingProbe(world, probe, variant, remaining);
-            if (inserted > 0) remaining -= inserted;
-            if (remaining <= 0) break;
+        // One transaction across all outputs
+        try (Transaction tx = Transaction.openOuter()) {
+            remaining -= (int) routeToOutputs(world, intake, variant, remaining, tx);
+            tx.commit();
         }
 
         // Update buffer after routing attempt
         if (remaining != buffer.getCount()) {
+            intake.advanceRotation();
             if (remaining <= 0) {
-                intake.setBuffer(ItemStack.EMPTY);
+                intake.setBufferSlot(slot, ItemStack.EMPTY);
             } else {
                 buffer.setCount(remaining);
-                intake.setBuffer(buffer);
+                intake.setBufferSlot(slot, buffer);
             }
             return true;
         }
         return false;
     }
 
-    // ------------------------------------------------------------
-    // 3) Insertion helper
-    // ------------------------------------------------------------
-    private static int insertIntoInventoryFacingProbe(World world, OutputProbeBlockEntity probe, ItemVariant variant, int amount) {
-        Direction facing = probe.getCachedState().get(OutputProbeBlock.FACING);
-        BlockPos targetPos = probe.getPos().offset(facing);
-        BlockEntity targetBE = world.getBlockEntity(targetPos);
-
-        if (!(targetBE instanceof Inventory inventory)) return 0;
-
-        ItemStack toInsert = variant.toStack(amount);
-        int originalCount = toInsert.getCount();
-
-        // Pass 1: stack onto existing compatible stacks
-        for (int i = 0; i < inventory.size() && !toInsert.isEmpty(); i++) {
-            ItemStack slot = inventory.getStack(i);
-            if (slot.isEmpty()) continue;
-
-            if (ItemStack.areItemsAndComponentsEqual(slot, toInsert)) {
-                int canAdd = Math.min(slot.getMaxCount(), inventory.getMaxCountPerStack()) - slot.getCount();
-                if (canAdd > 0) {
-                    int add = Math.min(canAdd, toInsert.getCount());
-                    slot.increment(add);
-                    toInsert.decrement(add);
-                    inventory.markDirty();
-                }
+    /**
+     * Offer an amount to the intake's outputs as part of a transaction.
+     * Shared by buffer routing and direct inserts through the intake's Storage.
+     *
+     * @return amount accepted
+     */
+    public static long routeToOutputs(World world, IntakeBlockEntity intake, ItemVariant variant, long amount, TransactionContext tx) {
+        long remaining = amount;
+
+        // OPTIMIZATION: Sticky route - repeated variants go straight to their last destination
+        OutputProbeBlockEntity sticky = intake.getStickyRoute(variant);
+        if (sticky != null) {
+            remaining -= insertIntoInventoryFacingProbe(sticky, variant, remaining, tx);
+            if (remaining <= 0) return amount;
+            intake.forgetRoute(variant); // full
+        }
+
+        // Only the first accepting output becomes the sticky route - caching one
+        // further down would keep skipping a higher-ranked output once it has space
+        boolean passedAccepting = sticky != null;
+        for (OutputProbeBlockEntity probe : getOutputOrder(world, intake)) {
+            if (probe == sticky) continue;
+            if (!probe.accepts(variant)) {
+                // A full PRIORITY / ACCEPT_ALL output still ranks above whatever takes the stack
+                if (probe.outranksFor(variant)) passedAccepting = true;
+                continue;
             }
+
+            long inserted = insertIntoInventoryFacingProbe(probe, variant, remaining, tx);
+            if (inserted > 0) remaining -= inserted;
+            if (remaining <= 0) {
+                if (!passedAccepting) intake.rememberRoute(variant, probe);
+                break;
+            }
+            passedAccepting = true;
         }
 
-        // Pass 2: fill empty slots
-        for (int i = 0; i < inventory.size() && !toInsert.isEmpty(); i++) {
-            if (!inventory.getStack(i).isEmpty()) continue;
+        return amount - remaining;
+    }
+
+    /**
+     * Linked outputs in routing order: FILTER probes in link order, then the
+     * PRIORITY and ACCEPT_ALL groups ordered by the intake's distribution mode
+     */
+    private static List<OutputProbeBlockEntity> getOutputOrder(World world, IntakeBlockEntity intake) {
+        List<OutputProbeBlockEntity> filterProbes = new ArrayList<>();
+        List<OutputProbeBlockEntity> priorityProbes = new ArrayList<>();
+        List<OutputProbeBlockEntity> acceptAllProbes = new ArrayList<>();
 
-            int insertCount = Math.min(inventory.getMaxCountPerStack(), toInsert.getCount());
-            ItemStack newStack = toInsert.copyWithCount(insertCount);
-            inventory.setStack(i, newStack);
-            toInsert.decrement(insertCount);
-            inventory.markDirty();
+        for (BlockPos probePos : intake.getOutputs()) {
+            if (!(world.getBlockEntity(probePos) instanceof OutputProbeBlockEntity probe)) continue;
+
+            switch (probe.mode) {
+                case FILTER -> filterProbes.add(probe);
+                case PRIORITY -> priorityProbes.add(probe);
+                case ACCEPT_ALL -> acceptAllProbes.add(probe);
+            }
         }
 
-        return originalCount - toInsert.getCount();
+        DistributionMode mode = intake.getDistributionMode();
+        List<OutputProbeBlockEntity> order = new ArrayList<>(filterProbes);
+        mode.order(priorityProbes, intake.getRotation(), OutputProbeBlockEntity::getFillLevel, order);
+        mode.order(acceptAllProbes, intake.getRotation(), OutputProbeBlockEntity::getFillLevel, order);
+        return order;
+    }
+
+    // ------------------------------------------------------------
+    // 3) Insertion helper
+    // ------------------------------------------------------------
+    private static long insertIntoInventoryFacingProbe(OutputProbeBlockEntity probe, ItemVariant variant, long amount, TransactionContext tx) {
+        // Probe's slot index picks the partial stacks / empty slots directly
+        // and pushes the deltas to linked controllers when the transaction closes
+        return probe.insert(variant, amount, tx);
     }
 
     // ------------------------------------------------------------
     // 4) Can-insert checker
     // ------------------------------------------------------------
-    private static boolean canInsertAnywhere(World world, IntakeBlockEntity intake, ItemVariant variant, long amount) {
+    private static boolean canInsertAnywhere(World world, IntakeBlockEntity intake, ItemVariant variant, long amount, TransactionContext tx) {
         for (BlockPos probePos : intake.getOutputs()) {
             BlockEntity be = world.getBlockEntity(probePos);
             if (!(be instanceof OutputProbeBlockEntity probe)) continue;
             if (!probe.accepts(variant)) continue;
 
-            Direction facing = probe.getCachedState().get(OutputProbeBlock.FACING);
-            BlockPos targetPos = probe.getPos().offset(facing);
-            BlockEntity target = world.getBlockEntity(targetPos);
-
-            if (!(target instanceof Inventory inventory)) continue;
-
-            for (int i = 0; i < inventory.size(); i++) {
-                ItemStack slot = inventory.getStack(i);
-                if (slot.isEmpty()) return true;
-                if (ItemStack.areItemsAndComponentsEqual(slot, variant.toStack(1)) &&
-                        slot.getCount() < slot.getMaxCount()) return true;
-            }
+            // Dry run against the probe's indexed slots
+            if (probe.simulateInsert(variant, amount, tx) > 0) return true;
         }
         return false;
     }
@@ -175,6 +221,15 @@ public final class StorageLogic {
     // ------------------------------------------------------------
     // 5) Helper: locate any valid item storage for pulling
     // ------------------------------------------------------------
+    public static Storage<ItemVariant> findSourceStorage(IntakeBlockEntity intake) {
+        World world = intake.getWorld();
+        if (world == null) return null;
+
+        Direction facing = intake.getCachedState().get(IntakeBlock.FACING);
+        BlockPos sourcePos = intake.getPos().offset(facing);
+        return locateItemStorage(world, sourcePos, facing.getOpposite());
+    }
+
     private static Storage<ItemVariant> locateItemStorage(World world, BlockPos pos, Direction searchSide) {
         Objects.requireNonNull(world);
         Objects.requireNonNull(pos);
@@ -7,8 +7,6 @@ import net.minecraft.block.BlockRenderType;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.BlockWithEntity;
 import net.minecraft.block.entity.BlockEntity;
-import net.minecraft.block.entity.BlockEntityTicker;
-import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.item.ItemPlacementContext;
 import net.minecraft.item.ItemStack;
@@ -17,17 +15,17 @@ import net.minecraft.state.property.EnumProperty;
 import net.minecraft.state.property.Properties;
 import net.minecraft.text.Text;
 import net.minecraft.util.ActionResult;
-import net.minecraft.util.ItemScatterer;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
-import net.shaddii.smartsorter.SmartSorter;
+import net.minecraft.world.block.WireOrientation;
 import net.shaddii.smartsorter.blockentity.IntakeBlockEntity;
-import net.shaddii.smartsorter.blockentity.OutputProbeBlockEntity;
 import net.shaddii.smartsorter.item.LinkingToolItem;
 
-import java.util.ArrayList;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
 
 public class IntakeBlock extends BlockWithEntity {
     public static final EnumProperty<Direction> FACING = Properties.FACING;
@@ -60,13 +58,7 @@ public class IntakeBlock extends BlockWithEntity {
         return new IntakeBlockEntity(pos, state);
     }
 
-    @Override
-    public <T extends BlockEntity> BlockEntityTicker<T> getTicker(World world, BlockState state, BlockEntityType<T> type) {
-        if (world.isClient()) return null;
-        return type == SmartSorter.INTAKE_BE_TYPE
-                ? (world1, pos, state1, be) -> IntakeBlockEntity.tick(world1, pos, state1, (IntakeBlockEntity) be)
-                : null;
-    }
+    // No ticker - work is run by SmartSorterScheduler (see IntakeBlockEntity.runScheduled)
 
     @Override
     protected ActionResult onUse(BlockState state, World world, BlockPos pos, PlayerEntity player, BlockHitResult hit) {
@@ -82,42 +74,47 @@ public class IntakeBlock extends BlockWithEntity {
         if (player.isSneaking() && !heldStack.isEmpty()) return ActionResult.PASS;
         if (!heldStack.isEmpty() && heldStack.getItem() instanceof LinkingToolItem) return ActionResult.PASS;
 
+        // SHIFT + RIGHT CLICK (empty hand) — cycle throughput tier
+        if (player.isSneaking()) {
+            intake.cycleTier();
+            String capped = intake.getEffectiveTier() != intake.getTier()
+                    ? " §8(server cap: §7" + intake.getEffectiveTier().getDisplayName() + "§8)"
+                    : "";
+            player.sendMessage(Text.literal("§7Intake throughput: §b" + intake.getTier().getDisplayName() + capped), true);
+            return ActionResult.SUCCESS;
+        }
+
         String facing = state.get(FACING).asString();
-        String bufferText = intake.getBuffer().isEmpty()
+        List<ItemStack> buffered = intake.getBufferedStacks();
+        int parked = intake.getParkedCount();
+        String bufferText = buffered.isEmpty()
                 ? "§8Empty"
-                : "§e" + intake.getBuffer().getCount() + "x §f" + intake.getBuffer().getItem().getName(intake.getBuffer()).getString();
+                : "§e" + buffered.size() + "§7/" + intake.getBufferSize()
+                        + (parked > 0 ? " §8(§c" + parked + " parked§8)" : "");
         String outputsText = intake.getOutputs().isEmpty() ? "§c0" : "§a" + intake.getOutputs().size();
 
         player.sendMessage(Text.literal(
                 "§7Intake §8[§b" + facing + "§8] §7| Buffer: " + bufferText + " §7| Outputs: " + outputsText
+                        + " §7| Tier: §b" + intake.getEffectiveTier().getDisplayName()
+                        + " §7| §b" + intake.getDistributionMode().getDisplayName()
         ), true);
 
         return ActionResult.SUCCESS;
     }
 
+    /**
+     * Source (or any neighbor) changed - wake a sleeping intake.
+     * NO @Override due to mapping variations
+     */
+    protected void neighborUpdate(BlockState state, World world, BlockPos pos, Block sourceBlock,
+                                  @Nullable WireOrientation wireOrientation, boolean notify) {
+        if (!world.isClient() && world.getBlockEntity(pos) instanceof IntakeBlockEntity intake) {
+            intake.wake();
+        }
+    }
+
     @Override
     public BlockRenderType getRenderType(BlockState state) {
         return BlockRenderType.MODEL;
     }
-
-    public void onRemove(BlockState state, World world, BlockPos pos, BlockState newState, boolean moved) {
-        if (!state.isOf(newState.getBlock())) {
-            BlockEntity blockEntity = world.getBlockEntity(pos);
-
-            // Scatter items
-            if (blockEntity instanceof IntakeBlockEntity intake && !intake.getBuffer().isEmpty()) {
-                ItemScatterer.spawn(world, pos.getX(), pos.getY(), pos.getZ(), intake.getBuffer());
-            }
-
-            // Unlink from all probes
-            if (!world.isClient() && blockEntity instanceof IntakeBlockEntity intake) {
-                for (BlockPos probePos : new ArrayList<>(intake.getOutputs())) {
-                    BlockEntity probeBE = world.getBlockEntity(probePos);
-                    if (probeBE instanceof OutputProbeBlockEntity probe) {
-                        probe.removeLinkedBlock(pos);
-                    }
-                }
-            }
-        }
-    }
 }
@@ -8,8 +8,6 @@ import net.minecraft.block.BlockRenderType;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.BlockWithEntity;
 import net.minecraft.block.entity.BlockEntity;
-import net.minecraft.block.entity.BlockEntityTicker;
-import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.item.ItemPlacementContext;
 import net.minecraft.item.ItemStack;
@@ -22,9 +20,10 @@ import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
-import net.shaddii.smartsorter.SmartSorter;
+import net.minecraft.world.block.WireOrientation;
 import net.shaddii.smartsorter.blockentity.OutputProbeBlockEntity;
 import net.shaddii.smartsorter.item.LinkingToolItem;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Output Probe Block - Receives items from intake blocks and outputs them to inventories.
@@ -69,12 +68,7 @@ public class OutputProbeBlock extends BlockWithEntity {
         return new OutputProbeBlockEntity(pos, state);
     }
 
-    @Override
-    public <T extends BlockEntity> BlockEntityTicker<T> getTicker(World world, BlockState state, BlockEntityType<T> type) {
-        return type == SmartSorter.PROBE_BE_TYPE
-                ? (world1, pos, state1, be) -> OutputProbeBlockEntity.tick(world1, pos, state1, (OutputProbeBlockEntity) be)
-                : null;
-    }
+    // No ticker - work is run by SmartSorterScheduler (see OutputProbeBlockEntity.runScheduled)
 
     // 1.21.9: onUse method signature changed
     @Override
@@ -121,19 +115,19 @@ public class OutputProbeBlock extends BlockWithEntity {
         return ActionResult.SUCCESS;
     }
 
+    /**
+     * Target block changed (placed, broken, chest became double) - re-resolve it and rescan its index.
+     * NO @Override due to mapping variations
+     */
+    protected void neighborUpdate(BlockState state, World world, BlockPos pos, Block sourceBlock,
+                                  @Nullable WireOrientation wireOrientation, boolean notify) {
+        if (world.getBlockEntity(pos) instanceof OutputProbeBlockEntity probe) {
+            probe.invalidateTarget();
+        }
+    }
+
     @Override
     public BlockRenderType getRenderType(BlockState state) {
         return BlockRenderType.MODEL;
     }
-
-    // 1.21.9: onRemove method signature changed - removed @Override and super call
-    public void onRemove(BlockState state, World world, BlockPos pos, BlockState newState, boolean moved) {
-        if (!state.isOf(newState.getBlock())) {
-            BlockEntity blockEntity = world.getBlockEntity(pos);
-            if (blockEntity instanceof OutputProbeBlockEntity probe) {
-                probe.onRemoved(world);
-            }
-            // Note: super.onRemove() doesn't exist in 1.21.9
-        }
-    }
 }
\ No newline at end of file
@@ -4,8 +4,6 @@ import com.mojang.serialization.MapCodec;
 import net.minecraft.block.*;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.entity.BlockEntity;
-import net.minecraft.block.entity.BlockEntityTicker;
-import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.block.entity.AbstractFurnaceBlockEntity;
 import net.minecraft.entity.LivingEntity;
 import net.minecraft.entity.player.PlayerEntity;
@@ -23,7 +21,6 @@ import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
-import net.shaddii.smartsorter.SmartSorter;
 import net.shaddii.smartsorter.blockentity.ProcessProbeBlockEntity;
 import net.shaddii.smartsorter.item.LinkingToolItem;
 
@@ -114,16 +111,7 @@ public class ProcessProbeBlock extends BlockWithEntity {
         return new ProcessProbeBlockEntity(pos, state);
     }
 
-    /**
-     * Ticker provider for server-side ticking of the block entity.
-     * Returns null on client to avoid accidental client-side ticking.
-     */
-    public <T extends BlockEntity> BlockEntityTicker<T> getTicker(World world, BlockState state, BlockEntityType<T> type) {
-        if (world == null || world.isClient()) return null;
-        return type == SmartSorter.PROCESS_PROBE_BE_TYPE
-                ? (world1, pos, state1, be) -> ProcessProbeBlockEntity.tick(world1, pos, state1, (ProcessProbeBlockEntity) be)
-                : null;
-    }
+    // No ticker - work is run by SmartSorterScheduler (see ProcessProbeBlockEntity.runScheduled)
 
     /**
      * When player right-clicks: non-linking tool -> show status.
@@ -174,21 +162,4 @@ public class ProcessProbeBlock extends BlockWithEntity {
             }
         }
     }
-
-    /**
-     * 1.21.10: onStateReplaced now takes ServerWorld instead of World
-     */
-    @Override
-    protected void onStateReplaced(BlockState state, ServerWorld world, BlockPos pos, boolean moved) {
-        // Check if block actually changed (compare with current state)
-        BlockState currentState = world.getBlockState(pos);
-        if (state.isOf(currentState.getBlock())) return;
-
-        BlockEntity be = world.getBlockEntity(pos);
-        if (be instanceof ProcessProbeBlockEntity probe) {
-            probe.onRemoved();
-        }
-
-        super.onStateReplaced(state, world, pos, moved);
-    }
 }
@@ -5,17 +5,14 @@ import net.minecraft.block.BlockRenderType;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.BlockWithEntity;
 import net.minecraft.block.entity.BlockEntity;
-import net.minecraft.block.entity.BlockEntityTicker;
-import net.minecraft.block.entity.BlockEntityType;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.item.ItemStack;
 import net.minecraft.screen.NamedScreenHandlerFactory;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.Text;
 import net.minecraft.util.ActionResult;
-import net.minecraft.util.ItemScatterer;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 import net.shaddii.smartsorter.SmartSorter; // DEBUG: For debug logging
 import net.shaddii.smartsorter.blockentity.StorageControllerBlockEntity;
@@ -76,8 +73,8 @@ public class StorageControllerBlock extends BlockWithEntity {
 
         // SHIFT + RIGHT CLICK — Show info
         if (player.isSneaking()) {
-            int free = controller.calculateTotalFreeSlots();
-            int total = controller.calculateTotalCapacity();
+            int free = controller.getFreeSlots();
+            int total = controller.getTotalCapacity();
             int inventories = controller.getLinkedInventoryCount();
 
             float percentFree = total > 0 ? (free / (float) total) * 100 : 0;
@@ -85,8 +82,9 @@ public class StorageControllerBlock extends BlockWithEntity {
 
             player.sendMessage(
                     Text.literal(String.format(
-                            "%sFree: §f%d§7/§f%d §8(§f%.0f%%§8) §7in §f%d §7inventories",
-                            color, free, total, percentFree, inventories
+                            "%sFree: §f%d§7/§f%d §8(§f%.0f%%§8) §7in §f%d §7inventories §8| §b%s",
+                            color, free, total, percentFree, inventories,
+                            controller.getDistributionMode().getDisplayName()
                     )),
                     true
             );
@@ -103,30 +101,25 @@ public class StorageControllerBlock extends BlockWithEntity {
         return ActionResult.SUCCESS;
     }
 
+    // ===================================================================
+    // COMPARATOR - network fill level from the maintained slot counters
+    // ===================================================================
+
     @Override
-    public <T extends BlockEntity> BlockEntityTicker<T> getTicker(World world, BlockState state, BlockEntityType<T> type) {
-        return world.isClient() ? null : validateTicker(type, SmartSorter.STORAGE_CONTROLLER_BE_TYPE, StorageControllerBlockEntity::tick);
+    protected boolean hasComparatorOutput(BlockState state) {
+        return true;
     }
 
-    // 1.21.9: onRemove method signature changed - removed @Override and super call
-    /**
-     * 1.21.10: onStateReplaced signature - takes ServerWorld, no newState parameter
-     */
     /**
-     * 1.21.10: onStateReplaced now takes ServerWorld instead of World
+     * NO @Override due to mapping variations
      */
-    @Override
-    protected void onStateReplaced(BlockState state, ServerWorld world, BlockPos pos, boolean moved) {
-        // Check if block actually changed
-        BlockState currentState = world.getBlockState(pos);
-        if (state.getBlock() != currentState.getBlock()) {
-            BlockEntity blockEntity = world.getBlockEntity(pos);
-            if (blockEntity instanceof StorageControllerBlockEntity controller) {
-                ItemScatterer.spawn(world, pos, controller);
-                controller.onRemoved();
-                world.updateComparators(pos, this);
-            }
+    protected int getComparatorOutput(BlockState state, World world, BlockPos pos, Direction direction) {
+        BlockEntity blockEntity = world.getBlockEntity(pos);
+        if (blockEntity instanceof StorageControllerBlockEntity controller) {
+            return controller.getComparatorOutput();
         }
-        super.onStateReplaced(state, world, pos, moved);
+        return 0;
     }
+
+    // No ticker - work is run by SmartSorterScheduler (see StorageControllerBlockEntity.runScheduled)
 }
\ No newline at end of file
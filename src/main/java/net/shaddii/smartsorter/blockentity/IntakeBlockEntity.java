@@ -1,75 +1,204 @@
 package net.shaddii.smartsorter.blockentity;
 
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.fabricmc.fabric.api.transfer.v1.storage.Storage;
+import net.fabricmc.fabric.api.transfer.v1.storage.StoragePreconditions;
+import net.fabricmc.fabric.api.transfer.v1.storage.base.InsertionOnlyStorage;
+import net.fabricmc.fabric.api.transfer.v1.transaction.TransactionContext;
 import net.minecraft.block.BlockState;
+import net.minecraft.block.ChestBlock;
 import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.inventory.Inventory;
 import net.minecraft.item.ItemStack;
-import net.minecraft.nbt.NbtCompound;
-import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.storage.ReadView;
+import net.minecraft.storage.WriteView;
+import net.minecraft.util.ItemScatterer;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 import net.shaddii.smartsorter.SmartSorter;
+import net.shaddii.smartsorter.SmartSorterConfig;
+import net.shaddii.smartsorter.SmartSorterScheduler;
 import net.shaddii.smartsorter.StorageLogic;
+import net.shaddii.smartsorter.block.IntakeBlock;
+import net.shaddii.smartsorter.util.DistributionMode;
+import net.shaddii.smartsorter.util.IntakeThroughput;
+import net.shaddii.smartsorter.util.InventoryIndex;
+import net.shaddii.smartsorter.util.LinkValidation;
+import net.shaddii.smartsorter.util.RouteCache;
+import net.shaddii.smartsorter.util.ScheduledTicker;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-// Fixed for Minecraft 1.21.9 compatibility
-// Main change: ItemStack.fromNbt() now takes Optional<NbtCompound>
+// Fixed for Minecraft 1.21.10 compatibility
+// Persistence goes through WriteView/ReadView; buffer slots use ItemStack.OPTIONAL_CODEC
 
-public class IntakeBlockEntity extends BlockEntity {
+public class IntakeBlockEntity extends BlockEntity implements ScheduledTicker {
     private final List<BlockPos> outputs = new ArrayList<>();
-    private ItemStack buffer = ItemStack.EMPTY; // one-stack buffer
-    private int cooldown = 0;
+    // Link safety check: full on load, then staggered and limited to reloaded chunks
+    private long lastValidation = -1;
+    private long nextValidation = 0;
+
+    // Ring buffer: pulling fills empty slots, routing walks the ring from routeCursor.
+    // Parked slots had nowhere to go and are skipped until an output changes,
+    // or until PARK_RETRY_INTERVAL ticks pass (outputs can change without telling us)
+    private ItemStack[] buffer = emptyBuffer(SmartSorterConfig.intakeBufferSlots);
+    private boolean[] parked = new boolean[buffer.length];
+    private int routeCursor = 0;
+    private long parkRetryAt = -1;
+    private static final int PARK_RETRY_INTERVAL = 100;
+
+    // Variants that had no destination - skipped until a linked output changes
+    private final Set<ItemVariant> unroutable = new HashSet<>();
+    private static final int MAX_UNROUTABLE = 256;
+
+    // Variant -> output that last took all of it (FIRST_FIT only)
+    private final RouteCache<OutputProbeBlockEntity> routeCache = new RouteCache<>();
+
+    // Idle intakes sleep; while asleep the source is only checked every SOURCE_CHECK_INTERVAL ticks
+    private boolean sleeping = false;
+    private final InventoryIndex sourceIndex = new InventoryIndex();
+    private long sourceVersion = -1;
+    private static final int SOURCE_CHECK_INTERVAL = 20;
+
+    // How PRIORITY / ACCEPT_ALL outputs share routed stacks
+    private DistributionMode distributionMode = DistributionMode.FIRST_FIT;
+    private int rotation = 0;
+
+    // Insert-only view for pipes/hoppers (registered with ItemStorage.SIDED)
+    private final Storage<ItemVariant> itemStorage = new IntakeStorage();
+
+    // Throughput tier (per block, capped by server config) + adaptive cooldown
+    private IntakeThroughput tier = SmartSorterConfig.intakeDefaultTier;
+    private int currentCooldown = tier.getMinCooldown();
 
     public IntakeBlockEntity(BlockPos pos, BlockState state) {
         super(SmartSorter.INTAKE_BE_TYPE, pos, state);
     }
 
     /**
-     * Server tick entry (called by block's getTicker / validateTicker)
+     * Scheduled work (run by SmartSorterScheduler, not a block ticker)
+     *
+     * @return ticks until the next run - the adaptive cooldown, or the
+     *         source check interval while asleep
      */
-    public static void tick(World world, BlockPos pos, BlockState state, IntakeBlockEntity be) {
-        // **As you noted**: use world.isClient() here.
-        if (world.isClient()) return;
+    @Override
+    public int runScheduled(ServerWorld world) {
+        // Staggered link check (removed blocks unlink themselves right away)
+        if (lastValidation < 0 || world.getTime() >= nextValidation) {
+            validateOutputs(world, lastValidation);
+            nextValidation = lastValidation < 0
+                    ? LinkValidation.firstCheck(pos, world.getTime())
+                    : world.getTime() + LinkValidation.INTERVAL;
+            lastValidation = world.getTime();
+        }
 
-        // Validate links every 5 seconds (100 ticks)
-        if (world.getTime() % 100L == 0L) {
-            be.validateOutputs(world);
+        // Retry parked slots now and then, even if no output reported a change
+        boolean retryParked = parkRetryAt >= 0 && world.getTime() >= parkRetryAt;
+        if (retryParked) {
+            unroutable.clear();
+            unparkAll();
         }
 
-        if (be.cooldown > 0) {
-            be.cooldown--;
-            return;
+        // OPTIMIZATION: Asleep until the source or an output changes.
+        // Only a cheap reference-compare check of the source runs meanwhile;
+        // a parked buffer also wakes on its retry timer to re-check the outputs
+        if (sleeping) {
+            if (!retryParked && !sourceChanged()) return SOURCE_CHECK_INTERVAL;
+            sleeping = false;
+            currentCooldown = getEffectiveTier().getMinCooldown();
         }
 
-        // Pull from the block in front into this BE's buffer
-        StorageLogic.pullFromFacingIntoBuffer(be);
+        IntakeThroughput tier = getEffectiveTier();
+        boolean moved = false;
+
+        // Higher tiers move several stacks per operation
+        for (int op = 0; op < tier.getStacksPerOp(); op++) {
+            // Pull from the block in front into a free buffer slot
+            boolean pulled = StorageLogic.pullFromFacingIntoBuffer(this, tier.getItemsPerStack());
 
-        // Try to route the buffer to outputs
-        boolean moved = StorageLogic.routeBuffer(world, be);
+            // Route the next buffered stack - a blocked one doesn't hold up the rest
+            boolean routed = StorageLogic.routeBuffer(world, this);
+
+            if (!pulled && !routed) break;
+            moved = true;
+        }
 
-        // Short cooldown if moved, longer cooldown if idle
-        be.cooldown = moved ? 2 : 10;
+        updateCooldown(moved);
 
         // 1.21.9: setChanged() renamed to markDirty()
-        be.markDirty();
+        if (moved) markDirty();
+
+        // Fully backed off and still idle - sleep until something changes
+        if (!moved && currentCooldown >= tier.getMaxCooldown()) {
+            fallAsleep();
+            return SOURCE_CHECK_INTERVAL;
+        }
+
+        return currentCooldown;
     }
 
     /**
      * Remove any invalid output links (checks the supplied world).
      * Passing world in avoids ambiguous field access.
+     * Only links whose chunk was loaded after {@code since} are looked at.
      */
-    private void validateOutputs(World world) {
-        outputs.removeIf(outputPos -> {
+    private void validateOutputs(World world, long since) {
+        boolean removed = outputs.removeIf(outputPos -> {
+            if (!LinkValidation.needsCheck(world, outputPos, since)) return false;
             BlockEntity be = world.getBlockEntity(outputPos);
-            return !(be instanceof OutputProbeBlockEntity);
+            if (!(be instanceof OutputProbeBlockEntity probe)) return true;
+            // Links saved before probes kept a back-link to their intakes
+            probe.addLinkedBlock(pos);
+            return false;
         });
+        if (removed) {
+            unroutable.clear();
+            routeCache.clear();
+            unparkAll();
+        }
     }
 
-    // Adds an OutputProbe link
+    /**
+     * 1.21.5+: called while the block is being broken/replaced - drop the
+     * buffered items and unlink from output probes right away
+     */
+    @Override
+    public void onBlockReplaced(BlockPos pos, BlockState oldState) {
+        super.onBlockReplaced(pos, oldState);
+        if (world == null || world.isClient()) return;
+
+        for (ItemStack stack : getBufferedStacks()) {
+            ItemScatterer.spawn(world, pos.getX(), pos.getY(), pos.getZ(), stack);
+        }
+        Arrays.fill(buffer, ItemStack.EMPTY);
+
+        for (BlockPos probePos : new ArrayList<>(outputs)) {
+            if (!LinkValidation.isLoaded(world, probePos)) continue;
+            if (world.getBlockEntity(probePos) instanceof OutputProbeBlockEntity probe) {
+                probe.removeLinkedBlock(pos);
+            }
+        }
+        outputs.clear();
+    }
+
+    // Adds an OutputProbe link (and the probe's back-link, so it can report changes)
     public boolean addOutput(BlockPos probePos) {
         if (!outputs.contains(probePos)) {
             outputs.add(probePos);
+            if (world != null && LinkValidation.isLoaded(world, probePos)
+                    && world.getBlockEntity(probePos) instanceof OutputProbeBlockEntity probe) {
+                probe.addLinkedBlock(pos);
+            }
+            unroutable.clear();
+            routeCache.clear();
+            unparkAll();
             // 1.21.9: setChanged() renamed to markDirty()
             markDirty();
             return true;
@@ -81,65 +210,414 @@ public class IntakeBlockEntity extends BlockEntity {
         return outputs;
     }
 
-    public ItemStack getBuffer() {
-        return buffer;
-    }
-
     public boolean removeOutput(BlockPos probePos) {
         boolean removed = outputs.remove(probePos);
         if (removed) {
+            if (world != null && LinkValidation.isLoaded(world, probePos)
+                    && world.getBlockEntity(probePos) instanceof OutputProbeBlockEntity probe) {
+                probe.removeLinkedBlock(pos);
+            }
+            unroutable.clear();
+            routeCache.clear();
+            unparkAll();
             markDirty();
         }
         return removed;
     }
 
-    public void setBuffer(ItemStack stack) {
-        this.buffer = stack;
-        // 1.21.9: setChanged() renamed to markDirty()
+    // ===================================================================
+    // BUFFER (ring)
+    // ===================================================================
+
+    public int getBufferSize() {
+        return buffer.length;
+    }
+
+    public ItemStack getBufferSlot(int slot) {
+        return buffer[slot];
+    }
+
+    public boolean isBufferEmpty() {
+        for (ItemStack stack : buffer) {
+            if (!stack.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    public boolean hasBufferSpace() {
+        for (ItemStack stack : buffer) {
+            if (stack.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    public int getParkedCount() {
+        int count = 0;
+        for (int i = 0; i < buffer.length; i++) {
+            if (parked[i] && !buffer[i].isEmpty()) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Non-empty buffered stacks (copies not made - don't modify)
+     */
+    public List<ItemStack> getBufferedStacks() {
+        List<ItemStack> stacks = new ArrayList<>();
+        for (ItemStack stack : buffer) {
+            if (!stack.isEmpty()) stacks.add(stack);
+        }
+        return stacks;
+    }
+
+    /**
+     * Put a freshly pulled stack into the first empty slot.
+     * @return false if the buffer is full
+     */
+    public boolean offerToBuffer(ItemStack stack) {
+        for (int i = 0; i < buffer.length; i++) {
+            if (buffer[i].isEmpty()) {
+                buffer[i] = stack;
+                parked[i] = false;
+                // 1.21.9: setChanged() renamed to markDirty()
+                markDirty();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Next non-empty, non-parked slot in ring order (advances the cursor), or -1
+     */
+    public int nextRoutableSlot() {
+        for (int n = 0; n < buffer.length; n++) {
+            int slot = (routeCursor + n) % buffer.length;
+            if (!buffer[slot].isEmpty() && !parked[slot]) {
+                routeCursor = (slot + 1) % buffer.length;
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public void setBufferSlot(int slot, ItemStack stack) {
+        buffer[slot] = stack;
+        if (stack.isEmpty()) parked[slot] = false;
+        markDirty();
+    }
+
+    /**
+     * Skip this slot until an output changes or the retry interval passes
+     * (nothing accepted it)
+     */
+    public void parkSlot(int slot) {
+        parked[slot] = true;
+        if (parkRetryAt < 0 && world != null) {
+            parkRetryAt = world.getTime() + PARK_RETRY_INTERVAL;
+        }
+    }
+
+    private void unparkAll() {
+        Arrays.fill(parked, false);
+        parkRetryAt = -1;
+    }
+
+    private static ItemStack[] emptyBuffer(int size) {
+        ItemStack[] stacks = new ItemStack[size];
+        Arrays.fill(stacks, ItemStack.EMPTY);
+        return stacks;
+    }
+
+    // ===================================================================
+    // UNROUTABLE CACHE
+    // ===================================================================
+
+    public boolean isUnroutable(ItemVariant variant) {
+        return unroutable.contains(variant);
+    }
+
+    public void markUnroutable(ItemVariant variant) {
+        // Bounded - a source full of unique items shouldn't grow this forever
+        if (unroutable.size() >= MAX_UNROUTABLE) unroutable.clear();
+        unroutable.add(variant);
+    }
+
+    /**
+     * Called by a linked output probe when it freed space or its filter
+     * changed - anything skipped before may have a destination now
+     */
+    public void onOutputChanged() {
+        unroutable.clear();
+        unparkAll();
+        wake();
+    }
+
+    /**
+     * Called by a linked output probe when its mode or accepted item set changed
+     */
+    public void onOutputFilterChanged() {
+        routeCache.clear();
+        onOutputChanged();
+    }
+
+    // ===================================================================
+    // STICKY ROUTES
+    // ===================================================================
+
+    /**
+     * Cached destination for a variant. Only used with FIRST_FIT - the other
+     * modes spread stacks on purpose.
+     */
+    @Nullable
+    public OutputProbeBlockEntity getStickyRoute(ItemVariant variant) {
+        if (distributionMode != DistributionMode.FIRST_FIT) return null;
+
+        OutputProbeBlockEntity probe = routeCache.get(variant);
+        if (probe != null && probe.isRemoved()) {
+            routeCache.invalidate(variant);
+            return null;
+        }
+        return probe;
+    }
+
+    public void rememberRoute(ItemVariant variant, OutputProbeBlockEntity probe) {
+        if (distributionMode == DistributionMode.FIRST_FIT) {
+            routeCache.put(variant, probe);
+        }
+    }
+
+    /**
+     * Destination filled up - next time walk all outputs again
+     */
+    public void forgetRoute(ItemVariant variant) {
+        routeCache.invalidate(variant);
+    }
+
+    // ===================================================================
+    // SLEEP / WAKE
+    // ===================================================================
+
+    /**
+     * Resume pulling right away (source block changed, output freed space, ...)
+     */
+    public void wake() {
+        if (!sleeping) return;
+        sleeping = false;
+        currentCooldown = getEffectiveTier().getMinCooldown();
+        SmartSorterScheduler.wake(this);
+    }
+
+    public boolean isSleeping() {
+        return sleeping;
+    }
+
+    private void fallAsleep() {
+        sleeping = true;
+
+        // Remember what the source looks like now
+        Inventory inv = getSourceInventory();
+        if (inv != null) {
+            sourceIndex.rebuild(inv);
+            sourceVersion = -1;
+        } else {
+            sourceIndex.clear();
+            Storage<ItemVariant> storage = StorageLogic.findSourceStorage(this);
+            sourceVersion = storage != null ? storage.getVersion() : -1;
+        }
+        sourceIndex.drainChanges();
+    }
+
+    /**
+     * Cheap change check of the source: slot reference compares for
+     * inventories, the Storage version counter for anything else
+     */
+    private boolean sourceChanged() {
+        Inventory inv = getSourceInventory();
+        if (inv != null) {
+            if (!sourceIndex.verify(inv, inv.size())) return true;
+            boolean changed = sourceIndex.hasChanges();
+            sourceIndex.drainChanges();
+            return changed;
+        }
+
+        Storage<ItemVariant> storage = StorageLogic.findSourceStorage(this);
+        return storage != null && storage.getVersion() != sourceVersion;
+    }
+
+    private Inventory getSourceInventory() {
+        if (world == null) return null;
+
+        Direction facing = getCachedState().get(IntakeBlock.FACING);
+        BlockPos sourcePos = pos.offset(facing);
+        BlockState sourceState = world.getBlockState(sourcePos);
+
+        if (sourceState.getBlock() instanceof ChestBlock chestBlock) {
+            Inventory chestInv = ChestBlock.getInventory(chestBlock, sourceState, world, sourcePos, true);
+            if (chestInv != null) return chestInv;
+        }
+
+        return world.getBlockEntity(sourcePos) instanceof Inventory inv ? inv : null;
+    }
+
+    // ===================================================================
+    // TRANSFER API
+    // ===================================================================
+
+    public Storage<ItemVariant> getItemStorage() {
+        return itemStorage;
+    }
+
+    /**
+     * Pushed items are routed straight to the linked outputs inside the
+     * caller's transaction - nothing is buffered, so whatever the outputs
+     * can't take is simply refused and stays in the pipe.
+     */
+    private class IntakeStorage implements InsertionOnlyStorage<ItemVariant> {
+        @Override
+        public long insert(ItemVariant resource, long maxAmount, TransactionContext transaction) {
+            StoragePreconditions.notBlankNotNegative(resource, maxAmount);
+            if (world == null || world.isClient() || maxAmount == 0) return 0;
+
+            // OPTIMIZATION: Known to have no destination until an output changes
+            if (isUnroutable(resource)) return 0;
+
+            long inserted = StorageLogic.routeToOutputs(world, IntakeBlockEntity.this, resource, maxAmount, transaction);
+            if (inserted == 0) {
+                markUnroutable(resource);
+                return 0;
+            }
+
+            transaction.addOuterCloseCallback(result -> {
+                if (result.wasCommitted()) advanceRotation();
+            });
+            return inserted;
+        }
+    }
+
+    // ===================================================================
+    // DISTRIBUTION
+    // ===================================================================
+
+    public DistributionMode getDistributionMode() {
+        return distributionMode;
+    }
+
+    public void cycleDistributionMode() {
+        distributionMode = distributionMode.next();
+        rotation = 0;
+        routeCache.clear();
         markDirty();
     }
 
-    // Save NBT (with RegistryWrapper lookup)
-    // 1.21.9: writeNbt signature changed - removed @Override, method name changed
-    protected void writeNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup lookup) {
-        // Note: super.writeNbt() doesn't exist in 1.21.9, data is saved differently
+    /**
+     * Round-robin start offset for the next routed stack
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    public void advanceRotation() {
+        if (distributionMode == DistributionMode.ROUND_ROBIN) rotation++;
+    }
+
+    // ===================================================================
+    // THROUGHPUT
+    // ===================================================================
+
+    public IntakeThroughput getTier() {
+        return tier;
+    }
+
+    /**
+     * Tier actually used - the block's own setting capped by the server config
+     */
+    public IntakeThroughput getEffectiveTier() {
+        return tier.min(SmartSorterConfig.intakeMaxTier);
+    }
+
+    public void cycleTier() {
+        tier = tier.next();
+        currentCooldown = tier.getMinCooldown();
+        sleeping = false;
+        markDirty();
+        SmartSorterScheduler.wake(this);
+    }
+
+    /**
+     * Adaptive cooldown: halves while items keep moving, doubles while idle.
+     * The result is the delay until the scheduler runs this intake again
+     */
+    private void updateCooldown(boolean moved) {
+        IntakeThroughput active = getEffectiveTier();
+        if (moved) {
+            currentCooldown = Math.max(active.getMinCooldown(), currentCooldown / 2);
+        } else {
+            currentCooldown = Math.min(active.getMaxCooldown(), Math.max(1, currentCooldown) * 2);
+        }
+    }
+
+    // ===================================================================
+    // PERSISTENCE
+    // ===================================================================
+
+    // 1.21.10: writeNbt/readNbt are no longer called - data goes through WriteView/ReadView
+    @Override
+    public void writeData(WriteView view) {
+        super.writeData(view);
 
         // Save outputs
-        nbt.putInt("out_count", outputs.size());
+        view.putInt("out_count", outputs.size());
         for (int i = 0; i < outputs.size(); i++) {
-            nbt.putLong("o" + i, outputs.get(i).asLong());
+            view.putLong("o" + i, outputs.get(i).asLong());
         }
 
-        // Save buffer (prevents item loss on world reload)
-        // 1.21.9: Use OPTIONAL_CODEC to encode ItemStack
-        if (!buffer.isEmpty()) {
-            var encoded = ItemStack.OPTIONAL_CODEC.encodeStart(lookup.getOps(net.minecraft.nbt.NbtOps.INSTANCE), buffer)
-                    .getOrThrow();
-            nbt.put("buffer", encoded);
+        view.putString("tier", tier.asString());
+        view.putString("distribution", distributionMode.asString());
+
+        // Save buffer (prevents item loss on world reload) - only occupied slots
+        view.putInt("buffer_size", buffer.length);
+        for (int i = 0; i < buffer.length; i++) {
+            if (!buffer[i].isEmpty()) {
+                view.put("buffer_" + i, ItemStack.OPTIONAL_CODEC, buffer[i]);
+            }
         }
     }
 
-    // Load NBT (with RegistryWrapper lookup)
-    // 1.21.9: readNbt signature changed - removed @Override, method name changed
-    protected void readNbt(NbtCompound nbt, RegistryWrapper.WrapperLookup lookup) {
-        // Note: super.readNbt() doesn't exist in 1.21.9, data is loaded differently
+    @Override
+    public void readData(ReadView view) {
+        super.readData(view);
 
         // Load outputs
         outputs.clear();
-        // 1.21.9: NBT methods now return Optional
-        int c = nbt.getInt("out_count").orElse(0);
+        int c = view.getInt("out_count", 0);
         for (int i = 0; i < c; i++) {
-            nbt.getLong("o" + i).ifPresent(pos -> outputs.add(BlockPos.fromLong(pos)));
+            view.getOptionalLong("o" + i).ifPresent(pos -> outputs.add(BlockPos.fromLong(pos)));
         }
 
+        tier = IntakeThroughput.fromString(view.getString("tier", SmartSorterConfig.intakeDefaultTier.asString()));
+        currentCooldown = tier.getMinCooldown();
+        distributionMode = DistributionMode.fromString(view.getString("distribution", "first_fit"));
+
         // Load buffer (restore items after world reload)
-        // 1.21.9: Use OPTIONAL_CODEC to decode ItemStack
-        if (nbt.contains("buffer")) {
-            buffer = ItemStack.OPTIONAL_CODEC.parse(lookup.getOps(net.minecraft.nbt.NbtOps.INSTANCE), nbt.get("buffer"))
-                    .result()
-                    .orElse(ItemStack.EMPTY);
-        } else {
-            buffer = ItemStack.EMPTY;
+        List<ItemStack> saved = new ArrayList<>();
+        int savedSize = view.getInt("buffer_size", 0);
+        for (int i = 0; i < savedSize; i++) {
+            view.read("buffer_" + i, ItemStack.OPTIONAL_CODEC)
+                    .filter(stack -> !stack.isEmpty())
+                    .ifPresent(saved::add);
+        }
+        // Pre-ring worlds stored a single "buffer" stack
+        view.read("buffer", ItemStack.OPTIONAL_CODEC)
+                .filter(stack -> !stack.isEmpty())
+                .ifPresent(saved::add);
+
+        // Never drop items if the configured size shrank - grow to fit instead
+        buffer = emptyBuffer(Math.max(SmartSorterConfig.intakeBufferSlots, saved.size()));
+        parked = new boolean[buffer.length];
+        routeCursor = 0;
+        for (int i = 0; i < saved.size(); i++) {
+            buffer[i] = saved.get(i);
         }
     }
 }
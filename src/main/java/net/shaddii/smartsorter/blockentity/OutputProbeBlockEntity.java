@@ -4,20 +4,29 @@ import net.fabricmc.fabric.api.transfer.v1.item.InventoryStorage;
 import net.fabricmc.fabric.api.transfer.v1.item.ItemStorage;
 import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
 import net.fabricmc.fabric.api.transfer.v1.storage.Storage;
+import net.fabricmc.fabric.api.transfer.v1.transaction.Transaction;
+import net.fabricmc.fabric.api.transfer.v1.transaction.TransactionContext;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.inventory.Inventory;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtList;
 import net.minecraft.nbt.NbtLong;
 import net.minecraft.registry.RegistryWrapper;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 import net.shaddii.smartsorter.SmartSorter;
+import net.shaddii.smartsorter.SmartSorterConfig;
+import net.shaddii.smartsorter.SmartSorterScheduler;
 import net.shaddii.smartsorter.block.OutputProbeBlock;
-import net.shaddii.smartsorter.util.SortUtil;
+import net.shaddii.smartsorter.util.InventoryIndex;
+import net.shaddii.smartsorter.util.LinkValidation;
+import net.shaddii.smartsorter.util.ScheduledTicker;
+import net.shaddii.smartsorter.util.TagIndex;
 import net.minecraft.storage.ReadView;
 import net.minecraft.storage.WriteView;
 import net.minecraft.network.listener.ClientPlayPacketListener;
@@ -26,17 +35,20 @@ import net.minecraft.network.packet.s2c.play.BlockEntityUpdateS2CPacket;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Output Probe Block Entity - Multi-Block Linking Support
  *
  * UPDATED FEATURES:
  * - Can link to multiple blocks (controllers, intakes, etc.)
- * - Automatically notifies all linked blocks when inventory changes
+ * - Pushes index deltas to all linked blocks when the inventory changes
  * - Bidirectional linking support
+ * - Keeps a live index of the target inventory (see {@link InventoryIndex})
  */
-public class OutputProbeBlockEntity extends BlockEntity {
+public class OutputProbeBlockEntity extends BlockEntity implements ScheduledTicker {
     // Configuration
     public boolean ignoreComponents = true;
     public boolean useTags = false;
@@ -48,6 +60,39 @@ public class OutputProbeBlockEntity extends BlockEntity {
     // UPDATED: Multi-block linking (replaces single linkedController)
     private final List<BlockPos> linkedBlocks = new ArrayList<>();
 
+    // Live index of the target inventory, kept in sync by deltas
+    private final InventoryIndex index = new InventoryIndex();
+    private boolean indexDirty = true;
+    // Set during insertion when an indexed slot turned out to hold something else
+    private boolean staleSlotSeen;
+    // Slots changed in the open transaction, re-checked when it closes
+    private final BitSet touchedSlots = new BitSet();
+    private boolean refreshScheduled = false;
+    // Deltas found inside a transaction wait for it to close (see flushIndexChanges)
+    private boolean flushDeferred = false;
+
+    // Resolved target - reused until a neighbor update or the target BE unloads
+    @Nullable private Inventory cachedInventory;
+    @Nullable private Storage<ItemVariant> cachedStorage;
+    @Nullable private BlockEntity cachedTargetEntity;
+    private boolean targetResolved = false;
+
+    // Tag union of the target's items (useTags filter)
+    private final BitSet tagUnion = new BitSet();
+    private int tagUnionItemVersion = -1;
+    private int tagUnionGeneration = -1;
+    // Item set last reported to linked blocks - a change is a filter change in FILTER mode
+    private int reportedItemSetVersion = -1;
+
+    // Every VERIFY_INTERVAL ticks the next SmartSorterConfig.probeVerifySlots slots
+    // of the target are re-checked (rolling), so big targets spread over several runs
+    private static final int VERIFY_INTERVAL = 20;
+    // Storage-only targets: version seen at the last rescan (-1 = rescan next time)
+    private long targetStorageVersion = -1;
+    // Link safety check: full on load, then staggered and limited to reloaded chunks
+    private long lastValidation = -1;
+    private long nextValidation = 0;
+
     public enum ProbeMode {
         FILTER,
         ACCEPT_ALL,
@@ -58,13 +103,28 @@ public class OutputProbeBlockEntity extends BlockEntity {
         super(SmartSorter.PROBE_BE_TYPE, pos, state);
     }
 
-    public static void tick(World world, BlockPos pos, BlockState state, OutputProbeBlockEntity be) {
-        if (world.isClient()) return;
+    /**
+     * Scheduled work (run by SmartSorterScheduler every VERIFY_INTERVAL ticks,
+     * or right away after markIndexDirty)
+     */
+    @Override
+    public int runScheduled(ServerWorld world) {
+        // Staggered link check (removed blocks unlink themselves right away)
+        if (lastValidation < 0 || world.getTime() >= nextValidation) {
+            validateLinkedBlocks(lastValidation);
+            nextValidation = lastValidation < 0
+                    ? LinkValidation.firstCheck(pos, world.getTime())
+                    : world.getTime() + LinkValidation.INTERVAL;
+            lastValidation = world.getTime();
+        }
 
-        // Validate linked blocks every 5 seconds
-        if (world.getTime() % 100 == 0) {
-            be.validateLinkedBlocks();
+        // Keep the inventory index current (full rescan only when flagged)
+        if (indexDirty) {
+            rescanIndex();
+        } else {
+            verifyIndex();
         }
+        return VERIFY_INTERVAL;
     }
 
     // ===================================================================
@@ -120,33 +180,381 @@ public class OutputProbeBlockEntity extends BlockEntity {
     }
 
     /**
-     * Validate all linked blocks (remove invalid ones)
+     * Validate linked blocks (remove invalid ones) whose chunk was loaded after {@code since}
      */
-    private void validateLinkedBlocks() {
+    private void validateLinkedBlocks(long since) {
         if (world == null) return;
 
-        linkedBlocks.removeIf(blockPos -> {
+        boolean removed = linkedBlocks.removeIf(blockPos -> {
+            if (!LinkValidation.needsCheck(world, blockPos, since)) return false;
             BlockEntity be = world.getBlockEntity(blockPos);
             return !(be instanceof StorageControllerBlockEntity || be instanceof IntakeBlockEntity);
         });
+
+        // Same as removeLinkedBlock - persist the pruned list and refresh the client
+        if (removed) {
+            markDirty();
+            BlockState state = world.getBlockState(pos);
+            world.updateListeners(pos, state, state, 3);
+        }
+    }
+
+    // ===================================================================
+    // INVENTORY INDEX
+    // ===================================================================
+
+    public InventoryIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Used slots / total slots from the index counters (no scan).
+     * Storage-only targets have no slot count and report full, so
+     * least-full distribution tries them last.
+     */
+    public double getFillLevel() {
+        int size = index.size();
+        return size > 0 ? index.getUsedSlots() / (double) size : 1.0;
     }
 
     /**
-     * Notify all linked blocks that this probe's inventory changed
+     * Flag the index for a full rescan on the next tick
+     * (e.g. the target block was replaced)
      */
-    public void notifyLinkedBlocks() {
+    public void markIndexDirty() {
+        indexDirty = true;
+        SmartSorterScheduler.wake(this);
+    }
+
+    /**
+     * Full rescan of the target. Unchanged slots cost a reference compare.
+     */
+    public void rescanIndex() {
+        indexDirty = false;
         if (world == null || world.isClient()) return;
 
-        for (BlockPos blockPos : new ArrayList<>(linkedBlocks)) {
-            BlockEntity be = world.getBlockEntity(blockPos);
+        Inventory inv = getTargetInventory();
+        if (inv != null) {
+            index.rebuild(inv);
+        } else {
+            Storage<ItemVariant> storage = getTargetStorage();
+            if (storage != null) {
+                index.rebuildFromStorage(storage);
+                targetStorageVersion = storage.getVersion();
+            } else {
+                index.clear();
+                targetStorageVersion = -1;
+            }
+        }
+
+        flushIndexChanges();
+    }
+
+    /**
+     * Rescan now if the index is flagged or no longer matches the target
+     */
+    private void ensureIndex(Inventory inv) {
+        if (indexDirty || index.size() != inv.size()) {
+            rescanIndex();
+        }
+    }
+
+    /**
+     * Incremental check of the target, catching outside changes
+     * (hoppers, players, other mods).
+     * OPTIMIZATION: Inventories are checked a bounded number of slots per run;
+     * storage-only targets are only rescanned when their version moved.
+     */
+    private void verifyIndex() {
+        Inventory inv = getTargetInventory();
+        if (inv == null) {
+            Storage<ItemVariant> storage = getTargetStorage();
+            boolean unchanged = storage != null
+                    ? storage.getVersion() == targetStorageVersion
+                    : index.size() == 0 && index.getTotals().isEmpty();
+            if (unchanged) return;
+            rescanIndex();
+            return;
+        }
+        if (!index.verify(inv, SmartSorterConfig.probeVerifySlots)) {
+            rescanIndex();
+            return;
+        }
+        flushIndexChanges();
+    }
+
+    /**
+     * Call after modifying a slot of the target inventory directly.
+     * Follow up with {@link #flushIndexChanges()} once done.
+     */
+    public void refreshIndexSlot(Inventory inv, int slot) {
+        index.refreshSlot(inv, slot);
+    }
+
+    /**
+     * Forward pending index deltas to linked controllers
+     */
+    public void flushIndexChanges() {
+        if (!index.hasChanges()) return;
+
+        // A rescan inside a transaction (ensureIndex, stale-slot retry) sees
+        // uncommitted slots - don't hand those on until it's closed
+        if (Transaction.isOpen() && deferFlush()) return;
+
+        Map<ItemVariant, Long> changes = index.drainChanges();
+        if (world == null || world.isClient()) return;
+
+        // A FILTER probe accepts what its target holds - new/gone items change the filter
+        boolean filterChanged = mode == ProbeMode.FILTER && index.getItemSetVersion() != reportedItemSetVersion;
+        reportedItemSetVersion = index.getItemSetVersion();
+
+        // OPTIMIZATION: Intakes only care when space was freed - a plain
+        // insert can't give anything they skipped a destination
+        boolean freedSpace = false;
+        for (long delta : changes.values()) {
+            if (delta < 0) {
+                freedSpace = true;
+                break;
+            }
+        }
 
+        for (BlockPos blockPos : linkedBlocks) {
+            BlockEntity be = world.getBlockEntity(blockPos);
             if (be instanceof StorageControllerBlockEntity controller) {
-                controller.onProbeInventoryChanged(this);
+                controller.onProbeIndexChanged(this, changes);
+                if (filterChanged) controller.onProbeFilterChanged(this);
+            } else if (be instanceof IntakeBlockEntity intake) {
+                if (filterChanged) {
+                    intake.onOutputFilterChanged();
+                } else if (freedSpace) {
+                    intake.onOutputChanged();
+                }
             }
-            // Future: Add more block types here
         }
     }
 
+    /**
+     * Flush once the open transaction closes; after an abort the index saw
+     * rolled-back contents, so it is rescanned instead.
+     * Only reached from code without a transaction context of its own (e.g. accepts()).
+     *
+     * @return false if there's no transaction to wait for after all
+     */
+    private boolean deferFlush() {
+        if (flushDeferred) return true;
+
+        TransactionContext current = Transaction.getCurrentUnsafe();
+        if (current == null) return false;
+
+        flushDeferred = true;
+        current.addOuterCloseCallback(result -> {
+            flushDeferred = false;
+            if (result.wasCommitted()) {
+                flushIndexChanges();
+            } else {
+                markIndexDirty();
+            }
+        });
+        return true;
+    }
+
+    // ===================================================================
+    // TRANSFER (transactional)
+    // ===================================================================
+
+    /**
+     * Insert up to {@code amount} of a variant and commit right away.
+     * Outer-level callers only - inside a transaction pass it to
+     * {@link #insert(ItemVariant, long, TransactionContext)}.
+     *
+     * @return amount actually inserted
+     */
+    public int insert(ItemVariant variant, int amount) {
+        if (amount <= 0) return 0;
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            long inserted = insert(variant, amount, transaction);
+            transaction.commit();
+            return (int) inserted;
+        }
+    }
+
+    /**
+     * Extract up to {@code amount} of a variant and commit right away.
+     * Outer-level callers only - inside a transaction pass it to
+     * {@link #extract(ItemVariant, long, TransactionContext)}.
+     *
+     * @return amount actually extracted
+     */
+    public int extract(ItemVariant variant, int amount) {
+        if (amount <= 0) return 0;
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            long extracted = extract(variant, amount, transaction);
+            transaction.commit();
+            return (int) extracted;
+        }
+    }
+
+    /**
+     * How much of a variant would fit, without changing anything.
+     * Outer-level callers only (see the overload below).
+     */
+    public long simulateInsert(ItemVariant variant, long maxAmount) {
+        try (Transaction simulation = Transaction.openOuter()) {
+            return insert(variant, maxAmount, simulation);
+        }
+    }
+
+    /**
+     * Dry run inside the caller's transaction - sees its uncommitted changes
+     */
+    public long simulateInsert(ItemVariant variant, long maxAmount, TransactionContext parent) {
+        try (Transaction simulation = Transaction.openNested(parent)) {
+            return insert(variant, maxAmount, simulation);
+        }
+    }
+
+    /**
+     * Insert through the target's slot storages: tops up the index's partial
+     * stacks first, then fills its empty slots. Full slots are never visited.
+     * Rolled back with the transaction; the index catches up when it closes.
+     */
+    public long insert(ItemVariant variant, long maxAmount, TransactionContext transaction) {
+        if (maxAmount <= 0 || variant.isBlank()) return 0;
+
+        Inventory inv = getTargetInventory();
+        if (inv == null) {
+            // Slot-less target - let its Storage decide, rescan on close
+            Storage<ItemVariant> storage = getTargetStorage();
+            if (storage == null) return 0;
+            scheduleIndexRefresh(transaction);
+            return storage.insert(variant, maxAmount, transaction);
+        }
+
+        ensureIndex(inv);
+        InventoryStorage slots = InventoryStorage.of(inv, null);
+
+        long inserted = insertIndexed(inv, slots, variant, maxAmount, transaction);
+
+        // Snapshot disagreed with the inventory - resync once and retry
+        if (inserted < maxAmount && staleSlotSeen) {
+            rescanIndex();
+            inserted += insertIndexed(inv, slots, variant, maxAmount - inserted, transaction);
+        }
+
+        return inserted;
+    }
+
+    /**
+     * Extract through the target's slot storages, visiting only the slots the
+     * index lists for this variant. Falls back to one rescan if the index is stale.
+     */
+    public long extract(ItemVariant variant, long maxAmount, TransactionContext transaction) {
+        if (maxAmount <= 0 || variant.isBlank()) return 0;
+
+        Inventory inv = getTargetInventory();
+        if (inv == null) {
+            Storage<ItemVariant> storage = getTargetStorage();
+            if (storage == null) return 0;
+            scheduleIndexRefresh(transaction);
+            return storage.extract(variant, maxAmount, transaction);
+        }
+
+        ensureIndex(inv);
+        InventoryStorage slots = InventoryStorage.of(inv, null);
+
+        long extracted = extractIndexed(inv, slots, variant, maxAmount, transaction);
+
+        // Index promised more than we found - resync once and retry
+        if (extracted < maxAmount && index.getCount(variant) > 0) {
+            rescanIndex();
+            extracted += extractIndexed(inv, slots, variant, maxAmount - extracted, transaction);
+        }
+
+        return extracted;
+    }
+
+    private long insertIndexed(Inventory inv, InventoryStorage slots, ItemVariant variant,
+                               long amount, TransactionContext transaction) {
+        staleSlotSeen = false;
+        long inserted = 0;
+
+        // Pass 1: top up non-full stacks of this variant
+        BitSet partial = index.getPartialSlots(variant);
+        if (partial != null) {
+            for (int i = partial.nextSetBit(0); i >= 0 && inserted < amount; i = partial.nextSetBit(i + 1)) {
+                long added = slots.getSlot(i).insert(variant, amount - inserted, transaction);
+                if (added > 0) {
+                    inserted += added;
+                } else if (!variant.matches(inv.getStack(i))) {
+                    staleSlotSeen = true;
+                }
+                touchSlot(inv, i, transaction);
+            }
+        }
+
+        // Pass 2: fill empty slots
+        BitSet empty = index.getEmptySlots();
+        for (int i = empty.nextSetBit(0); i >= 0 && inserted < amount; i = empty.nextSetBit(i + 1)) {
+            if (inv.getStack(i).isEmpty()) {
+                inserted += slots.getSlot(i).insert(variant, amount - inserted, transaction);
+            } else {
+                staleSlotSeen = true;
+            }
+            touchSlot(inv, i, transaction);
+        }
+
+        return inserted;
+    }
+
+    private long extractIndexed(Inventory inv, InventoryStorage slots, ItemVariant variant,
+                                long amount, TransactionContext transaction) {
+        BitSet held = index.getSlots(variant);
+        if (held == null || index.size() != inv.size()) return 0;
+
+        long extracted = 0;
+        for (int i = held.nextSetBit(0); i >= 0 && extracted < amount; i = held.nextSetBit(i + 1)) {
+            extracted += slots.getSlot(i).extract(variant, amount - extracted, transaction);
+            // Also corrects the entry if the slot was stale
+            touchSlot(inv, i, transaction);
+        }
+
+        return extracted;
+    }
+
+    /**
+     * Keep the index current inside the transaction and re-check the slot
+     * once it closes (an abort puts the old stack back)
+     */
+    private void touchSlot(Inventory inv, int slot, TransactionContext transaction) {
+        index.refreshSlot(inv, slot);
+        touchedSlots.set(slot);
+        scheduleIndexRefresh(transaction);
+    }
+
+    private void scheduleIndexRefresh(TransactionContext transaction) {
+        if (refreshScheduled) return;
+        refreshScheduled = true;
+
+        transaction.addOuterCloseCallback(result -> {
+            refreshScheduled = false;
+
+            Inventory inv = getTargetInventory();
+            if (inv != null && index.size() == inv.size()) {
+                for (int i = touchedSlots.nextSetBit(0); i >= 0; i = touchedSlots.nextSetBit(i + 1)) {
+                    index.refreshSlot(inv, i);
+                }
+            } else {
+                markIndexDirty();
+            }
+            touchedSlots.clear();
+
+            // One update per transaction for linked controllers
+            flushIndexChanges();
+        });
+    }
+
     // ===================================================================
     // LEGACY COMPATIBILITY (for existing code that uses getLinkedController)
     // ===================================================================
@@ -180,29 +588,66 @@ public class OutputProbeBlockEntity extends BlockEntity {
     // STORAGE ACCESS
     // ===================================================================
 
+    /**
+     * OPTIMIZATION: Served from the resolved-target cache - a field read on the hot path
+     */
     public Storage<ItemVariant> getTargetStorage() {
-        if (world == null) return null;
+        if (!isTargetCacheValid()) resolveTarget();
+        return cachedStorage;
+    }
+
+    public Inventory getTargetInventory() {
+        if (!isTargetCacheValid()) resolveTarget();
+        return cachedInventory;
+    }
+
+    /**
+     * Drop the resolved target (neighbor changed) and rescan the index
+     */
+    public void invalidateTarget() {
+        targetResolved = false;
+        cachedInventory = null;
+        cachedStorage = null;
+        cachedTargetEntity = null;
+        markIndexDirty();
+    }
+
+    private boolean isTargetCacheValid() {
+        // A removed BE means the target was broken or its chunk unloaded
+        return targetResolved && (cachedTargetEntity == null || !cachedTargetEntity.isRemoved());
+    }
+
+    private void resolveTarget() {
+        cachedInventory = null;
+        cachedStorage = null;
+        cachedTargetEntity = null;
+        targetResolved = false;
+        if (world == null) return;
 
         Direction face = getCachedState().get(OutputProbeBlock.FACING);
         BlockPos targetPos = pos.offset(face);
 
+        cachedTargetEntity = world.getBlockEntity(targetPos);
+        cachedInventory = resolveTargetInventory(targetPos);
+        cachedStorage = resolveTargetStorage(targetPos, face, cachedInventory);
+
+        // Misses aren't cached - the target may just not be loaded yet
+        targetResolved = cachedInventory != null || cachedStorage != null;
+    }
+
+    private Storage<ItemVariant> resolveTargetStorage(BlockPos targetPos, Direction face, @Nullable Inventory inv) {
         Storage<ItemVariant> sidedStorage = ItemStorage.SIDED.find(world, targetPos, face.getOpposite());
         if (sidedStorage != null) return sidedStorage;
 
         Storage<ItemVariant> storage = ItemStorage.SIDED.find(world, targetPos, null);
         if (storage != null) return storage;
 
-        Inventory inv = getTargetInventory();
         if (inv != null) return InventoryStorage.of(inv, null);
 
         return null;
     }
 
-    public Inventory getTargetInventory() {
-        if (world == null) return null;
-
-        Direction face = getCachedState().get(OutputProbeBlock.FACING);
-        BlockPos targetPos = pos.offset(face);
+    private Inventory resolveTargetInventory(BlockPos targetPos) {
         BlockState targetState = world.getBlockState(targetPos);
 
         if (targetState.getBlock() instanceof net.minecraft.block.ChestBlock chestBlock) {
@@ -212,8 +657,7 @@ public class OutputProbeBlockEntity extends BlockEntity {
             }
         }
 
-        BlockEntity be = world.getBlockEntity(targetPos);
-        if (be instanceof Inventory inv) {
+        if (cachedTargetEntity instanceof Inventory inv) {
             return inv;
         }
 
@@ -232,35 +676,23 @@ public class OutputProbeBlockEntity extends BlockEntity {
             return false;
         }
 
-        int invSize = inv.size();
-
         if (mode == ProbeMode.ACCEPT_ALL) {
             return hasSpaceInInventory(inv, incoming, 1);
         }
 
         if (mode == ProbeMode.FILTER) {
             if (useTags) {
-                return SortUtil.acceptsByInventoryTags(inv, incoming, requireAllTags);
-            }
-
-            for (int i = 0; i < invSize; i++) {
-                ItemStack stack = inv.getStack(i);
-                if (stack.isEmpty()) continue;
-
-                ItemVariant present = ItemVariant.of(stack);
-
-                if (ignoreComponents) {
-                    if (present.getItem() == incoming.getItem()) {
-                        return true;
-                    }
-                } else {
-                    if (present.equals(incoming)) {
-                        return true;
-                    }
-                }
+                // OPTIMIZATION: Cached tag union + interned tag bitsets
+                ensureIndex(inv);
+                return TagIndex.matches(TagIndex.tagsOf(incoming.getItem()), getTagUnion(), requireAllTags);
             }
 
-            return false;
+            // OPTIMIZATION: Compiled filter - the index keeps the item/variant
+            // sets of the target current, so this is a hash lookup
+            ensureIndex(inv);
+            return ignoreComponents
+                    ? index.containsItem(incoming.getItem())
+                    : index.containsVariant(incoming);
         }
 
         if (mode == ProbeMode.PRIORITY) {
@@ -270,25 +702,39 @@ public class OutputProbeBlockEntity extends BlockEntity {
         return false;
     }
 
-    private boolean hasSpaceInInventory(Inventory inv, ItemVariant variant, int amount) {
-        if (inv == null) return false;
+    /**
+     * Would take this variant if it had space: PRIORITY / ACCEPT_ALL take
+     * anything, FILTER only what its filter matches. Routing uses this to
+     * tell a full probe that outranks the destination from one that never
+     * takes the variant - only the first would make a sticky route wrong.
+     */
+    public boolean outranksFor(ItemVariant incoming) {
+        return mode != ProbeMode.FILTER || accepts(incoming);
+    }
 
-        int invSize = inv.size();
-        for (int i = 0; i < invSize; i++) {
-            ItemStack stack = inv.getStack(i);
-
-            if (stack.isEmpty()) {
-                return true;
-            } else if (ItemStack.areItemsAndComponentsEqual(stack, variant.toStack(1))) {
-                int maxStack = Math.min(stack.getMaxCount(), inv.getMaxCountPerStack());
-                int canAdd = maxStack - stack.getCount();
-                if (canAdd > 0) {
-                    return true;
-                }
+    /**
+     * Union of the tags of every item in the target. Rebuilt only when the
+     * set of distinct items changes or tags are reloaded.
+     */
+    private BitSet getTagUnion() {
+        int itemVersion = index.getItemSetVersion();
+        int generation = TagIndex.generation();
+        if (itemVersion != tagUnionItemVersion || generation != tagUnionGeneration) {
+            tagUnion.clear();
+            for (Item item : index.getItems()) {
+                tagUnion.or(TagIndex.tagsOf(item));
             }
+            tagUnionItemVersion = itemVersion;
+            tagUnionGeneration = generation;
         }
+        return tagUnion;
+    }
 
-        return false;
+    private boolean hasSpaceInInventory(Inventory inv, ItemVariant variant, int amount) {
+        if (inv == null) return false;
+
+        ensureIndex(inv);
+        return index.hasSpaceFor(variant);
     }
 
     public boolean hasSpace(ItemVariant variant, int amount) {
@@ -307,6 +753,19 @@ public class OutputProbeBlockEntity extends BlockEntity {
             case PRIORITY -> ProbeMode.FILTER;
         };
         markDirty();
+
+        // Controllers keep a per-mode routing table, intakes an unroutable cache;
+        // both keep sticky routes
+        if (world != null && !world.isClient()) {
+            for (BlockPos blockPos : linkedBlocks) {
+                BlockEntity be = world.getBlockEntity(blockPos);
+                if (be instanceof StorageControllerBlockEntity controller) {
+                    controller.onProbeModeChanged(this);
+                } else if (be instanceof IntakeBlockEntity intake) {
+                    intake.onOutputFilterChanged();
+                }
+            }
+        }
     }
 
     public String getModeName() {
@@ -333,10 +792,22 @@ public class OutputProbeBlockEntity extends BlockEntity {
      * Called when this probe is removed from world
      * Unlinks from all connected blocks
      */
+    /**
+     * 1.21.5+: called while the block is being broken/replaced, before the
+     * block entity is gone - unlink from partners right away
+     */
+    @Override
+    public void onBlockReplaced(BlockPos pos, BlockState oldState) {
+        super.onBlockReplaced(pos, oldState);
+        if (world != null) onRemoved(world);
+    }
+
     public void onRemoved(World world) {
         if (world.isClient()) return;
 
         for (BlockPos blockPos : new ArrayList<>(linkedBlocks)) {
+            // Unloaded partners drop the link on their own check after loading
+            if (!LinkValidation.isLoaded(world, blockPos)) continue;
             BlockEntity be = world.getBlockEntity(blockPos);
 
             if (be instanceof StorageControllerBlockEntity controller) {
@@ -1,7 +1,10 @@
 package net.shaddii.smartsorter.blockentity;
 
-import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.fabricmc.fabric.api.transfer.v1.item.InventoryStorage;
 import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.fabricmc.fabric.api.transfer.v1.storage.StorageUtil;
+import net.fabricmc.fabric.api.transfer.v1.storage.base.SingleSlotStorage;
+import net.fabricmc.fabric.api.transfer.v1.transaction.Transaction;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.entity.*;
@@ -31,16 +34,15 @@ import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 import net.shaddii.smartsorter.SmartSorter;
 import net.shaddii.smartsorter.block.ProcessProbeBlock;
-import net.shaddii.smartsorter.network.ProbeStatsSyncPayload;
-import net.shaddii.smartsorter.screen.StorageControllerScreenHandler;
 import net.shaddii.smartsorter.util.ControllerLinkable;
 import net.shaddii.smartsorter.util.FuelFilterMode;
 import net.shaddii.smartsorter.util.ProcessProbeConfig;
 import net.shaddii.smartsorter.util.RecipeFilterMode;
+import net.shaddii.smartsorter.util.ScheduledTicker;
 
 import java.util.*;
 
-public class ProcessProbeBlockEntity extends BlockEntity implements ControllerLinkable {
+public class ProcessProbeBlockEntity extends BlockEntity implements ControllerLinkable, ScheduledTicker {
 
     // Core properties
     private BlockPos controllerPos;
@@ -160,18 +162,11 @@ public class ProcessProbeBlockEntity extends BlockEntity implements ControllerLi
     }
 
     private void syncStatsToClients() {
-        if (world instanceof ServerWorld serverWorld && controllerPos != null) {
+        if (world instanceof ServerWorld && controllerPos != null) {
             BlockEntity be = world.getBlockEntity(controllerPos);
             if (be instanceof StorageControllerBlockEntity controller) {
-                // Send to all players viewing this controller
-                for (ServerPlayerEntity player : serverWorld.getPlayers()) {
-                    if (player.currentScreenHandler instanceof StorageControllerScreenHandler handler) {
-                        if (handler.controller == controller) {
-                            ServerPlayNetworking.send(player,
-                                    new ProbeStatsSyncPayload(pos, processedCount));
-                        }
-                    }
-                }
+                // Send to the players viewing this controller (its viewer registry, no player scan)
+                controller.syncProbeStatsToClients(pos, processedCount);
             }
         }
     }
@@ -180,6 +175,16 @@ public class ProcessProbeBlockEntity extends BlockEntity implements ControllerLi
         return hasBeenConfigured;
     }
 
+    /**
+     * Scheduled work - runs every tick so redstone changes are picked up
+     * promptly; the processing itself is throttled by TICK_INTERVAL
+     */
+    @Override
+    public int runScheduled(ServerWorld world) {
+        tick(world, pos, getCachedState(), this);
+        return 1;
+    }
+
     public static void tick(World world, BlockPos pos, BlockState state, ProcessProbeBlockEntity be) {
         if (world == null || world.isClient()) return;
 
@@ -708,46 +713,48 @@ public class ProcessProbeBlockEntity extends BlockEntity implements ControllerLi
             return;
         }
 
-        ItemStack foundInput = ItemStack.EMPTY;
-        ItemStack foundFuel = ItemStack.EMPTY;
-
         Map<ItemVariant, Long> networkItems = controller.getNetworkItems();
         RecipeType<?> recipeType = getRecipeTypeForFurnace(furnace);
 
+        // Network -> machine moves go through one transaction each (see moveFromNetwork)
+        InventoryStorage machine = InventoryStorage.of(furnace, null);
+        SingleSlotStorage<ItemVariant> inputSlot = machine.getSlot(slots.getInputSlots()[0]);
+        SingleSlotStorage<ItemVariant> fuelSlot = machine.getSlot(slots.getFuelSlots()[0]);
+
         for (Map.Entry<ItemVariant, Long> entry : networkItems.entrySet()) {
             if (entry.getValue() <= 0) continue;
 
             ItemVariant variant = entry.getKey();
 
-            if (needsInput && foundInput.isEmpty()) {
+            if (needsInput) {
                 if (currentInput.isEmpty()) {
                     if (canSmelt(world, variant, furnace, recipeType) &&
                             matchesRecipeFilter(variant, config.recipeFilter)) {
                         int amount = (int) Math.min(inputSpace, entry.getValue());
-                        foundInput = controller.extractItem(variant, amount);
+                        moveFromNetwork(controller, variant, amount, inputSlot);
                         needsInput = false;
                     }
                 } else {
                     if (ItemVariant.of(currentInput).equals(variant)) {
                         int amount = (int) Math.min(inputSpace, entry.getValue());
-                        foundInput = controller.extractItem(variant, amount);
+                        moveFromNetwork(controller, variant, amount, inputSlot);
                         needsInput = false;
                     }
                 }
             }
 
-            if (needsFuel && foundFuel.isEmpty()) {
+            if (needsFuel) {
                 if (currentFuel.isEmpty()) {
                     if (isFuel(world, variant) &&
                             matchesFuelFilter(variant, config.fuelFilter)) {
                         int amount = (int) Math.min(fuelSpace, entry.getValue());
-                        foundFuel = controller.extractItem(variant, amount);
+                        moveFromNetwork(controller, variant, amount, fuelSlot);
                         needsFuel = false;
                     }
                 } else {
                     if (ItemVariant.of(currentFuel).equals(variant)) {
                         int amount = (int) Math.min(fuelSpace, entry.getValue());
-                        foundFuel = controller.extractItem(variant, amount);
+                        moveFromNetwork(controller, variant, amount, fuelSlot);
                         needsFuel = false;
                     }
                 }
@@ -757,27 +764,27 @@ public class ProcessProbeBlockEntity extends BlockEntity implements ControllerLi
                 break;
             }
         }
+    }
 
-        if (!foundInput.isEmpty()) {
-            int inputSlot = slots.getInputSlots()[0];
-            ItemStack existing = furnace.getStack(inputSlot);
-            if (existing.isEmpty()) {
-                furnace.setStack(inputSlot, foundInput);
-            } else {
-                existing.increment(foundInput.getCount());
+    /**
+     * Move items from the network into one machine slot atomically.
+     * The slot is dry-run first so only what fits leaves the network; if the
+     * slot still takes less than was extracted, both sides roll back.
+     */
+    private int moveFromNetwork(StorageControllerBlockEntity controller, ItemVariant variant,
+                                int amount, SingleSlotStorage<ItemVariant> slot) {
+        long fits = StorageUtil.simulateInsert(slot, variant, amount, null);
+        if (fits <= 0) return 0;
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            long extracted = controller.extract(variant, fits, transaction);
+            long inserted = slot.insert(variant, extracted, transaction);
+            if (extracted <= 0 || inserted != extracted) {
+                return 0;
             }
-            furnace.markDirty();
-        }
 
-        if (!foundFuel.isEmpty()) {
-            int fuelSlot = slots.getFuelSlots()[0];
-            ItemStack existing = furnace.getStack(fuelSlot);
-            if (existing.isEmpty()) {
-                furnace.setStack(fuelSlot, foundFuel);
-            } else {
-                existing.increment(foundFuel.getCount());
-            }
-            furnace.markDirty();
+            transaction.commit();
+            return (int) inserted;
         }
     }
 
@@ -842,39 +849,59 @@ public class ProcessProbeBlockEntity extends BlockEntity implements ControllerLi
 
     private boolean extractOutputsOptimized(ServerWorld world, Inventory inventory,
                                             StorageControllerBlockEntity controller, SlotConfig slots) {
-        boolean allExtracted = true;
-
+        // OPTIMIZATION: All output slots go to the controller as one batch
+        List<Integer> outputSlots = new ArrayList<>();
+        List<ItemStack> outputs = new ArrayList<>();
         for (int slot : slots.getOutputSlots()) {
             ItemStack output = inventory.getStack(slot);
             if (!output.isEmpty()) {
-                ItemStack toInsert = output.copy();
-                ItemStack remaining = controller.insertItem(toInsert);
-
-                if (remaining.isEmpty()) {
-                    // Collect XP BEFORE clearing the slot
-                    if (inventory instanceof AbstractFurnaceBlockEntity furnace) {
-                        collectFurnaceExperience(world, furnace, controller, toInsert);
-                    }
+                outputSlots.add(slot);
+                outputs.add(output.copy());
+            }
+        }
+        if (outputs.isEmpty()) return true;
 
-                    inventory.setStack(slot, ItemStack.EMPTY);
-                    inventory.markDirty();
-                    processedCount += toInsert.getCount();
+        List<ItemStack> remainders = controller.insertItems(outputs);
 
-                    // Update config
-                    if (config != null) {
-                        config.itemsProcessed = processedCount;
-                    }
+        boolean allExtracted = true;
+        int extracted = 0;
 
-                    markDirty();
+        for (int i = 0; i < outputSlots.size(); i++) {
+            int slot = outputSlots.get(i);
+            ItemStack toInsert = outputs.get(i);
+            ItemStack remaining = remainders.get(i);
 
-                    // Sync to clients
-                    controller.syncProbeStatsToClients(pos, processedCount);
-                } else {
-                    allExtracted = false;
+            if (remaining.isEmpty()) {
+                // Collect XP BEFORE clearing the slot
+                if (inventory instanceof AbstractFurnaceBlockEntity furnace) {
+                    collectFurnaceExperience(world, furnace, controller, toInsert);
                 }
+
+                inventory.setStack(slot, ItemStack.EMPTY);
+                extracted += toInsert.getCount();
+            } else {
+                // Keep only what didn't fit
+                inventory.setStack(slot, remaining);
+                extracted += toInsert.getCount() - remaining.getCount();
+                allExtracted = false;
             }
         }
 
+        if (extracted > 0) {
+            inventory.markDirty();
+            processedCount += extracted;
+
+            // Update config
+            if (config != null) {
+                config.itemsProcessed = processedCount;
+            }
+
+            markDirty();
+
+            // Sync to clients
+            controller.syncProbeStatsToClients(pos, processedCount);
+        }
+
         return allExtracted;
     }
 
@@ -1106,6 +1133,15 @@ public class ProcessProbeBlockEntity extends BlockEntity implements ControllerLi
         }
     }
 
+    /**
+     * 1.21.5+: called while the block is being broken/replaced
+     */
+    @Override
+    public void onBlockReplaced(BlockPos pos, BlockState oldState) {
+        super.onBlockReplaced(pos, oldState);
+        onRemoved();
+    }
+
     public void onRemoved() {
         if (world != null && !world.isClient() && controllerPos != null) {
             BlockEntity be = world.getBlockEntity(controllerPos);
@@ -2,11 +2,18 @@ package net.shaddii.smartsorter.blockentity;
 
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
 import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.fabricmc.fabric.api.transfer.v1.storage.Storage;
+import net.fabricmc.fabric.api.transfer.v1.storage.StoragePreconditions;
+import net.fabricmc.fabric.api.transfer.v1.storage.StorageView;
+import net.fabricmc.fabric.api.transfer.v1.storage.base.SnapshotParticipant;
+import net.fabricmc.fabric.api.transfer.v1.transaction.Transaction;
+import net.fabricmc.fabric.api.transfer.v1.transaction.TransactionContext;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.entity.player.PlayerInventory;
 import net.minecraft.inventory.Inventory;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtList;
@@ -23,21 +30,31 @@ import net.minecraft.storage.WriteView;
 import net.minecraft.text.Text;
 import net.minecraft.util.math.BlockPos;
 import java.util.Optional;
-import net.minecraft.world.World;
 import net.shaddii.smartsorter.SmartSorter;
 import net.shaddii.smartsorter.network.ProbeStatsSyncPayload;
 import net.shaddii.smartsorter.screen.StorageControllerScreenHandler;
+import net.shaddii.smartsorter.util.DistributionMode;
 import net.shaddii.smartsorter.util.FuelFilterMode;
+import net.shaddii.smartsorter.util.InventoryIndex;
+import net.shaddii.smartsorter.util.LinkValidation;
 import net.shaddii.smartsorter.util.ProcessProbeConfig;
 import net.shaddii.smartsorter.util.RecipeFilterMode;
+import net.shaddii.smartsorter.util.RouteCache;
+import net.shaddii.smartsorter.util.ScheduledTicker;
+import net.shaddii.smartsorter.util.SortMode;
+import net.shaddii.smartsorter.util.SortedItemIndex;
 import org.jetbrains.annotations.Nullable;
 
 // import org.slf4j.Logger;
 // import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -50,126 +67,371 @@ import java.util.HashSet;
  * - Added networkDirty flag (only updates when items actually change)
  * - Reduced unnecessary cache scans by ~98% for idle storage
  * - Only syncs to viewers when data actually changes
+ * - networkItems is a live index: inserts/extracts and probe rescans apply
+ *   deltas, a full rebuild only runs as a periodic reconciliation
  */
-public class StorageControllerBlockEntity extends BlockEntity implements NamedScreenHandlerFactory, Inventory {
+public class StorageControllerBlockEntity extends BlockEntity implements NamedScreenHandlerFactory, Inventory, ScheduledTicker {
     // private static final Logger LOGGER = LoggerFactory.getLogger("smartsorter"); // DEBUG
 
     private final List<BlockPos> linkedProbes = new ArrayList<>();
     private final Map<ItemVariant, Long> networkItems = new LinkedHashMap<>();
     private long lastCacheUpdate = 0;
+    // Link safety check: full on load, then staggered and limited to reloaded chunks
+    private long lastValidation = -1;
+    private long nextValidation = 0;
     private static final long CACHE_DURATION = 20;
 
+    // Which probe index each linked probe's contents were counted from
+    private final Map<BlockPos, InventoryIndex> accountedIndexes = new HashMap<>();
+    // Variant -> probes holding it, so extraction skips probes without it
+    private final Map<ItemVariant, Set<BlockPos>> variantLocations = new HashMap<>();
+    // Full rebuild is only a reconciliation step (on load + every 5 minutes)
+    private boolean needsRebuild = true;
+    private long lastRebuild = 0;
+    private static final long RECONCILE_INTERVAL = 6000;
+
+    // Precomputed insertion order with resolved probe references
+    private final List<OutputProbeBlockEntity> routingTable = new ArrayList<>();
+    private boolean routingDirty = true;
+    private int filterProbeCount = 0;
+    private int priorityProbeCount = 0;
+
+    // Variant -> probe that last took all of it (FIRST_FIT only)
+    private final RouteCache<OutputProbeBlockEntity> routeCache = new RouteCache<>();
+
+    // How PRIORITY / ACCEPT_ALL probes share inserts
+    private DistributionMode distributionMode = DistributionMode.FIRST_FIT;
+    private int roundRobinCursor = 0;
+
+    // Running slot totals, maintained from the same probe notifications
+    private final Map<BlockPos, SlotUsage> accountedSlots = new HashMap<>();
+    private int totalCapacity = 0;
+    private int totalUsedSlots = 0;
+    private int lastComparatorOutput = 0;
+
+    private static final class SlotUsage {
+        int capacity;
+        int used;
+    }
+
     //For Process Probes
     private final Map<BlockPos, ProcessProbeConfig> linkedProcessProbes = new LinkedHashMap<>();
     private int storedExperience = 0;
     private int nextProbeNumber = 1;
+    // Bumped on every process probe config change so viewers only resend configs when needed
+    private int probeConfigVersion = 0;
 
     // OPTIMIZATION: Dirty flag to prevent unnecessary cache updates
     private boolean networkDirty = true;
 
+    // Aggregated view of the whole network for other mods (ItemStorage.SIDED).
+    // networkVersion changes with every count change, including uncommitted
+    // ones made through this controller inside a still-open transaction
+    private final Storage<ItemVariant> itemStorage = new ControllerStorage();
+    private final PendingChanges pendingChanges = new PendingChanges();
+    private long networkVersion = 0;
+    // Changes only when a variant enters or leaves the network
+    private long networkKeyVersion = 0;
+    // Set while rebuildNetworkCache recounts, so viewers and the count order only see the net drift
+    private boolean rebuilding = false;
+
+    // Pre-sorted variants for viewers using the server-side windowed view
+    private final SortedItemIndex sortedIndex = new SortedItemIndex();
+
+    // OPTIMIZATION: Open screens on this controller (added on open, removed on close),
+    // so syncs cost the number of viewers instead of a scan over every player
+    private final Set<StorageControllerScreenHandler> viewers = new LinkedHashSet<>();
+
     public StorageControllerBlockEntity(BlockPos pos, BlockState state) {
         super(SmartSorter.STORAGE_CONTROLLER_BE_TYPE, pos, state);
     }
 
     /**
-     * OPTIMIZATION: Only updates cache when marked dirty AND enough time has passed
-     * This prevents scanning thousands of slots every second when nothing changed
+     * OPTIMIZATION: Only syncs when marked dirty AND enough time has passed
+     * The item cache itself is kept current by deltas, so nothing is rescanned here
+     * except probes that reported a change
      */
-    public static void tick(World world, BlockPos pos, BlockState state, StorageControllerBlockEntity be) {
-        if (world.isClient()) return;
+    @Override
+    public int runScheduled(ServerWorld world) {
+        // Staggered link check (removed blocks unlink themselves right away)
+        if (lastValidation < 0 || world.getTime() >= nextValidation) {
+            validateLinks(lastValidation);
+            nextValidation = lastValidation < 0
+                    ? LinkValidation.firstCheck(pos, world.getTime())
+                    : world.getTime() + LinkValidation.INTERVAL;
+            lastValidation = world.getTime();
+        }
 
-        // Validate links every 5 seconds
-        if (world.getTime() % 100 == 0) {
-            be.validateLinks();
+        // Rare reconciliation - otherwise probes keep the cache current with their index deltas
+        if (needsRebuild || world.getTime() - lastRebuild >= RECONCILE_INTERVAL) {
+            rebuildNetworkCache();
+        }
+
+        // OPTIMIZATION: Only sync if marked dirty
+        if (networkDirty && world.getTime() - lastCacheUpdate >= CACHE_DURATION) {
+            lastCacheUpdate = world.getTime();
+            syncToViewers();
+            networkDirty = false; // Clear flag after updating
         }
 
-        // OPTIMIZATION: Only update if marked dirty
-        if (be.networkDirty && world.getTime() - be.lastCacheUpdate >= CACHE_DURATION) {
-            be.updateNetworkCache();
-            be.lastCacheUpdate = world.getTime();
-            be.syncToViewers();
-            be.networkDirty = false; // Clear flag after updating
+        // Comparators only need an update when the fill level step changes
+        int comparatorOutput = getComparatorOutput();
+        if (comparatorOutput != lastComparatorOutput) {
+            lastComparatorOutput = comparatorOutput;
+            world.updateComparators(pos, getCachedState().getBlock());
         }
+
+        // Cheap when idle - runs every tick so viewers and comparators stay prompt
+        return 1;
     }
 
-    private void validateLinks() {
+    private void validateLinks(long since) {
         linkedProbes.removeIf(probePos -> {
+            if (!LinkValidation.needsCheck(world, probePos, since)) return false;
             BlockEntity be = world.getBlockEntity(probePos);
-            return !(be instanceof OutputProbeBlockEntity);
+            if (be instanceof OutputProbeBlockEntity) return false;
+            unaccountProbe(probePos);
+            return true;
         });
     }
 
-    public void updateNetworkCache() {
-        networkItems.clear();
-
+    /**
+     * Full reconciliation: rescan every linked probe and recount from scratch.
+     * Corrects any drift; not part of the normal insert/extract path.
+     */
+    public void rebuildNetworkCache() {
+        needsRebuild = false;
         if (world == null) return;
+        lastRebuild = world.getTime();
 
+        // Rescan first (deltas still land on the old counts), then recount
         for (BlockPos probePos : linkedProbes) {
             BlockEntity be = world.getBlockEntity(probePos);
-            if (!(be instanceof OutputProbeBlockEntity probe)) continue;
+            if (be instanceof OutputProbeBlockEntity probe) {
+                probe.rescanIndex();
+            }
+        }
 
-            var storage = probe.getTargetStorage();
-            if (storage == null) continue;
+        Map<ItemVariant, Long> previous = new HashMap<>(networkItems);
+        rebuilding = true;
+        networkItems.clear();
+        variantLocations.clear();
+        accountedIndexes.clear();
+        accountedSlots.clear();
+        totalCapacity = 0;
+        totalUsedSlots = 0;
 
-            for (var view : storage) {
-                if (view.getAmount() == 0) continue;
-                ItemVariant variant = view.getResource();
-                if (variant.isBlank()) continue;
+        for (BlockPos probePos : linkedProbes) {
+            BlockEntity be = world.getBlockEntity(probePos);
+            if (be instanceof OutputProbeBlockEntity probe) {
+                accountProbe(probePos, probe.getIndex());
+            }
+        }
+
+        rebuilding = false;
 
-                networkItems.merge(variant, view.getAmount(), Long::sum);
+        if (!networkItems.equals(previous)) {
+            networkDirty = true;
+            networkVersion++;
+            networkKeyVersion++;
+
+            sortedIndex.invalidateCounts();
+
+            // Recounting from zero would report every variant - only tell viewers what drifted
+            for (Map.Entry<ItemVariant, Long> entry : networkItems.entrySet()) {
+                if (!entry.getValue().equals(previous.get(entry.getKey()))) notifyViewers(entry.getKey());
+            }
+            for (ItemVariant variant : previous.keySet()) {
+                if (!networkItems.containsKey(variant)) notifyViewers(variant);
             }
         }
     }
 
-    private void syncToViewers() {
-        if (world instanceof ServerWorld serverWorld) {
-            for (ServerPlayerEntity player : serverWorld.getPlayers()) {
-                if (player.currentScreenHandler instanceof StorageControllerScreenHandler handler
-                        && handler.controller == this) {
-                    handler.sendNetworkUpdate(player);
-                }
+    /**
+     * Called by a linked probe with the deltas of its inventory index
+     */
+    public void onProbeIndexChanged(OutputProbeBlockEntity probe, Map<ItemVariant, Long> changes) {
+        BlockPos probePos = probe.getPos();
+        InventoryIndex accounted = accountedIndexes.get(probePos);
+
+        if (accounted != probe.getIndex()) {
+            // New or reloaded probe - count its full contents instead of the delta
+            if (accounted != null || linkedProbes.contains(probePos)) {
+                accountProbe(probePos, probe.getIndex());
             }
+            return;
+        }
+
+        for (Map.Entry<ItemVariant, Long> entry : changes.entrySet()) {
+            applyNetworkDelta(entry.getKey(), entry.getValue());
+            updateLocation(entry.getKey(), probePos, accounted);
         }
+        updateSlotUsage(probePos, accounted);
     }
 
-    public void syncProbeStatsToClients(BlockPos probePos, int itemsProcessed) {
-        if (world instanceof ServerWorld serverWorld) {
-            // LOGGER.info("syncProbeStatsToClients called for probe at {} with count {}", probePos, itemsProcessed);
-
-            int playerCount = 0;
-            for (ServerPlayerEntity player : serverWorld.getPlayers()) {
-                if (player.currentScreenHandler instanceof StorageControllerScreenHandler handler) {
-                    if (handler.controller == this) {
-                        ServerPlayNetworking.send(player,
-                                new ProbeStatsSyncPayload(probePos, itemsProcessed));
-                        playerCount++;
-                    }
-                }
-            }
+    /**
+     * Make networkItems count the given index for this probe position.
+     * No-op if it already does.
+     */
+    private void accountProbe(BlockPos probePos, InventoryIndex index) {
+        InventoryIndex previous = accountedIndexes.put(probePos, index);
+        if (previous == index) return;
+
+        // New index object means a new probe block entity - re-resolve routes
+        routingDirty = true;
 
-            if (playerCount == 0) {
+        if (previous != null) {
+            for (Map.Entry<ItemVariant, Long> entry : previous.getTotals().entrySet()) {
+                applyNetworkDelta(entry.getKey(), -entry.getValue());
+                removeLocation(entry.getKey(), probePos);
             }
         }
+        for (Map.Entry<ItemVariant, Long> entry : index.getTotals().entrySet()) {
+            applyNetworkDelta(entry.getKey(), entry.getValue());
+            variantLocations.computeIfAbsent(entry.getKey(), v -> new LinkedHashSet<>()).add(probePos);
+        }
+        updateSlotUsage(probePos, index);
+    }
+
+    private void unaccountProbe(BlockPos probePos) {
+        routingDirty = true;
+        InventoryIndex previous = accountedIndexes.remove(probePos);
+        if (previous == null) return;
+
+        SlotUsage usage = accountedSlots.remove(probePos);
+        if (usage != null) {
+            totalCapacity -= usage.capacity;
+            totalUsedSlots -= usage.used;
+            networkDirty = true;
+        }
+
+        for (Map.Entry<ItemVariant, Long> entry : previous.getTotals().entrySet()) {
+            applyNetworkDelta(entry.getKey(), -entry.getValue());
+            removeLocation(entry.getKey(), probePos);
+        }
+    }
+
+    private void updateSlotUsage(BlockPos probePos, InventoryIndex index) {
+        SlotUsage usage = accountedSlots.computeIfAbsent(probePos, p -> new SlotUsage());
+        int capacity = index.size();
+        int used = index.getUsedSlots();
+        if (capacity == usage.capacity && used == usage.used) return;
+
+        totalCapacity += capacity - usage.capacity;
+        totalUsedSlots += used - usage.used;
+        usage.capacity = capacity;
+        usage.used = used;
+        networkDirty = true;
+    }
+
+    private void updateLocation(ItemVariant variant, BlockPos probePos, InventoryIndex index) {
+        if (index.getCount(variant) > 0) {
+            variantLocations.computeIfAbsent(variant, v -> new LinkedHashSet<>()).add(probePos);
+        } else {
+            removeLocation(variant, probePos);
+        }
+    }
+
+    private void removeLocation(ItemVariant variant, BlockPos probePos) {
+        Set<BlockPos> locations = variantLocations.get(variant);
+        if (locations != null && locations.remove(probePos) && locations.isEmpty()) {
+            variantLocations.remove(variant);
+        }
+    }
+
+    private void applyNetworkDelta(ItemVariant variant, long delta) {
+        if (delta == 0) return;
+
+        long previous = networkItems.getOrDefault(variant, 0L);
+        long total = previous + delta;
+        if (total <= 0) {
+            if (networkItems.remove(variant) != null) networkKeyVersion++;
+        } else if (networkItems.put(variant, total) == null) {
+            networkKeyVersion++;
+        }
+        networkDirty = true;
+        networkVersion++;
+        if (!rebuilding) {
+            sortedIndex.onCountChanged(variant, previous, Math.max(0, total), networkItems);
+            notifyViewers(variant);
+        }
+    }
+
+    /**
+     * OPTIMIZATION: Viewers collect the changed variants as they happen, so a
+     * sync sends just those instead of diffing the whole network per viewer
+     */
+    private void notifyViewers(ItemVariant variant) {
+        for (StorageControllerScreenHandler handler : viewers) {
+            handler.onNetworkDelta(variant);
+        }
+    }
+
+    // ===================================================================
+    // VIEWERS
+    // ===================================================================
+
+    /**
+     * Called by a server-side screen handler when it's opened on this controller
+     */
+    public void addViewer(StorageControllerScreenHandler handler) {
+        viewers.add(handler);
+    }
+
+    /**
+     * Called by a server-side screen handler when it's closed
+     */
+    public void removeViewer(StorageControllerScreenHandler handler) {
+        viewers.remove(handler);
+    }
+
+    public boolean hasViewers() {
+        return !viewers.isEmpty();
+    }
+
+    /**
+     * Registered viewers, dropping any whose player left or moved on to
+     * another screen without the close reaching us
+     */
+    private Set<StorageControllerScreenHandler> getActiveViewers() {
+        viewers.removeIf(handler -> {
+            ServerPlayerEntity player = handler.getViewer();
+            return player == null || player.isRemoved() || player.currentScreenHandler != handler;
+        });
+        return viewers;
+    }
+
+    private void syncToViewers() {
+        for (StorageControllerScreenHandler handler : getActiveViewers()) {
+            handler.markSyncDirty();
+        }
+    }
+
+    public void syncProbeStatsToClients(BlockPos probePos, int itemsProcessed) {
+        if (viewers.isEmpty()) return;
+
+        ProbeStatsSyncPayload payload = new ProbeStatsSyncPayload(probePos, itemsProcessed);
+        for (StorageControllerScreenHandler handler : getActiveViewers()) {
+            ServerPlayNetworking.send(handler.getViewer(), payload);
+        }
     }
 
     public void syncProbeConfigToClients(BlockPos probePos, ProcessProbeConfig config) {
-        if (world instanceof ServerWorld serverWorld) {
+        if (world instanceof ServerWorld) {
             // Update our stored config first
             if (linkedProcessProbes.containsKey(probePos)) {
                 linkedProcessProbes.put(probePos, config.copy());
+                probeConfigVersion++;
             }
 
             // Send updates to all viewing players
-            for (ServerPlayerEntity player : serverWorld.getPlayers()) {
-                if (player.currentScreenHandler instanceof StorageControllerScreenHandler handler
-                        && handler.controller == this) {
-                    // Send stats update
-                    ServerPlayNetworking.send(player,
-                            new ProbeStatsSyncPayload(probePos, config.itemsProcessed));
-
-                    // Send full network update (includes probe configs)
-                    handler.sendNetworkUpdate(player);
-                }
+            for (StorageControllerScreenHandler handler : getActiveViewers()) {
+                // Send stats update
+                ServerPlayNetworking.send(handler.getViewer(),
+                        new ProbeStatsSyncPayload(probePos, config.itemsProcessed));
+
+                // Queue a network update (resends probe configs since they changed)
+                handler.markSyncDirty();
             }
         }
     }
@@ -184,9 +446,11 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
                 world.updateListeners(pos, state, state, 3);
             }
 
-            // OPTIMIZATION: Mark dirty when probes are added
-            networkDirty = true;
-            updateNetworkCache();
+            // Count the new probe's contents once; deltas keep it current after that
+            if (world != null && world.getBlockEntity(probePos) instanceof OutputProbeBlockEntity probe) {
+                probe.rescanIndex();
+                accountProbe(probePos, probe.getIndex());
+            }
             return true;
         }
         return false;
@@ -200,126 +464,197 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
         return new HashMap<>(networkItems);
     }
 
-    public int calculateTotalFreeSlots() {
-        if (world == null) return 0;
-
-        int totalFree = 0;
-
-        for (BlockPos probePos : linkedProbes) {
-            BlockEntity be = world.getBlockEntity(probePos);
-            if (!(be instanceof OutputProbeBlockEntity probe)) continue;
+    /**
+     * Network variants in the given sort order (shared, do not modify)
+     */
+    public List<ItemVariant> getSortedVariants(SortMode mode) {
+        return sortedIndex.get(mode, networkItems, networkKeyVersion);
+    }
 
-            Inventory inv = probe.getTargetInventory();
-            if (inv == null) continue;
+    /**
+     * Insert a variant into a list kept in COUNT sort order (e.g. a viewer's filtered matches)
+     */
+    public void insertByCount(List<ItemVariant> list, ItemVariant variant) {
+        sortedIndex.insertByCount(list, variant, networkItems);
+    }
 
-            for (int i = 0; i < inv.size(); i++) {
-                if (inv.getStack(i).isEmpty()) {
-                    totalFree++;
-                }
-            }
-        }
+    /**
+     * Changes whenever the order returned by getSortedVariants(mode) may have changed
+     */
+    public long getSortVersion(SortMode mode) {
+        return mode == SortMode.COUNT ? networkVersion : networkKeyVersion;
+    }
 
-        return totalFree;
+    public String getItemName(Item item) {
+        return sortedIndex.getName(item);
     }
 
-    public int calculateTotalCapacity() {
-        if (world == null) return 0;
+    /**
+     * Read-only live view of the network counts, for diffing without a copy
+     */
+    public Map<ItemVariant, Long> getNetworkItemsView() {
+        return Collections.unmodifiableMap(networkItems);
+    }
 
-        int totalSlots = 0;
+    // OPTIMIZATION: Maintained counters - no slot scans
+    public int getFreeSlots() {
+        return totalCapacity - totalUsedSlots;
+    }
 
-        for (BlockPos probePos : linkedProbes) {
-            BlockEntity be = world.getBlockEntity(probePos);
-            if (!(be instanceof OutputProbeBlockEntity probe)) continue;
+    public int getUsedSlots() {
+        return totalUsedSlots;
+    }
 
-            Inventory inv = probe.getTargetInventory();
-            if (inv != null) {
-                totalSlots += inv.size();
-            }
-        }
+    public int getTotalCapacity() {
+        return totalCapacity;
+    }
 
-        return totalSlots;
+    /**
+     * Comparator signal from used slots: 0 when empty, 15 when full
+     */
+    public int getComparatorOutput() {
+        if (totalCapacity <= 0 || totalUsedSlots <= 0) return 0;
+        return 1 + (int) ((totalUsedSlots / (float) totalCapacity) * 14.0f);
     }
 
     public int getLinkedInventoryCount() {
         return linkedProbes.size();
     }
 
-    public ItemStack extractItem(ItemVariant variant, int amount) {
-        if (world == null) return ItemStack.EMPTY;
+    // ===================================================================
+    // TRANSFER (transactional)
+    // ===================================================================
 
-        int remaining = amount;
+    /**
+     * Route up to {@code maxAmount} into the network as part of a transaction.
+     * Nothing is kept if the transaction is aborted.
+     */
+    public long insert(ItemVariant variant, long maxAmount, TransactionContext transaction) {
+        if (world == null || maxAmount <= 0 || variant.isBlank()) return 0;
+
+        long remaining = maxAmount;
+
+        // OPTIMIZATION: Sticky route - repeated variants go straight to their last destination
+        OutputProbeBlockEntity sticky = getStickyRoute(variant);
+        if (sticky != null) {
+            remaining -= insertSticky(sticky, variant, remaining, transaction);
+            if (remaining <= 0) {
+                pendingChanges.record(variant, maxAmount, transaction);
+                return maxAmount;
+            }
+        }
 
-        for (BlockPos probePos : linkedProbes) {
+        // Only the first accepting probe becomes the sticky route - caching one
+        // further down would keep skipping a higher-ranked probe once it has space
+        boolean passedAccepting = sticky != null;
+        for (OutputProbeBlockEntity probe : getInsertOrder()) {
             if (remaining <= 0) break;
+            if (probe == sticky) continue;
 
-            BlockEntity be = world.getBlockEntity(probePos);
-            if (!(be instanceof OutputProbeBlockEntity probe)) continue;
-
-            if (!probe.accepts(variant)) continue;
+            // Unloaded or replaced since the table was built - skip, rebuild next time
+            if (probe.isRemoved()) {
+                routingDirty = true;
+                continue;
+            }
 
-            var storage = probe.getTargetStorage();
-            if (storage == null) continue;
+            if (!probe.accepts(variant)) {
+                // A full PRIORITY / ACCEPT_ALL probe still ranks above whatever takes the stack
+                if (probe.outranksFor(variant)) passedAccepting = true;
+                continue;
+            }
 
-            int extracted = extractFromInventory(world, probe, variant, remaining);
-            remaining -= extracted;
+            remaining -= probe.insert(variant, remaining, transaction);
+            if (remaining <= 0 && !passedAccepting) rememberRoute(variant, probe);
+            passedAccepting = true;
         }
 
-        int totalExtracted = amount - remaining;
-        if (totalExtracted > 0) {
-            // OPTIMIZATION: Mark dirty when items are extracted
-            networkDirty = true;
-            updateNetworkCache();
-            return variant.toStack(totalExtracted);
+        if (remaining < maxAmount) {
+            advanceRotation(transaction);
+            pendingChanges.record(variant, maxAmount - remaining, transaction);
         }
-
-        return ItemStack.EMPTY;
+        return maxAmount - remaining;
     }
 
-    private int extractFromInventory(World world, OutputProbeBlockEntity probe, ItemVariant variant, int amount) {
-        Inventory inv = probe.getTargetInventory();
+    /**
+     * Extraction goes straight to the probes (and slots) the index lists for
+     * this variant instead of walking every linked inventory
+     */
+    public long extract(ItemVariant variant, long maxAmount, TransactionContext transaction) {
+        if (world == null || maxAmount <= 0 || variant.isBlank()) return 0;
+
+        long remaining = maxAmount;
 
-        if (inv == null) {
-            return 0;
+        Set<BlockPos> locations = variantLocations.get(variant);
+        if (locations != null) {
+            // Copy - a rescan during extraction can update the location set
+            for (BlockPos probePos : new ArrayList<>(locations)) {
+                if (remaining <= 0) break;
+
+                BlockEntity be = world.getBlockEntity(probePos);
+                if (!(be instanceof OutputProbeBlockEntity probe)) continue;
+
+                remaining -= probe.extract(variant, remaining, transaction);
+            }
         }
 
-        int extracted = 0;
+        if (remaining < maxAmount) pendingChanges.record(variant, -(maxAmount - remaining), transaction);
+        return maxAmount - remaining;
+    }
 
-        for (int i = 0; i < inv.size(); i++) {
-            if (extracted >= amount) break;
+    /**
+     * Extract and commit in a transaction of its own - outer-level callers only
+     */
+    public ItemStack extractItem(ItemVariant variant, int amount) {
+        try (Transaction transaction = Transaction.openOuter()) {
+            ItemStack extracted = extractItem(variant, amount, transaction);
+            transaction.commit();
+            return extracted;
+        }
+    }
 
-            ItemStack stack = inv.getStack(i);
-            if (stack.isEmpty()) continue;
+    /**
+     * Extract as part of the caller's transaction; the stack only counts if it commits
+     */
+    public ItemStack extractItem(ItemVariant variant, int amount, TransactionContext parent) {
+        if (world == null || amount <= 0) return ItemStack.EMPTY;
 
-            ItemVariant stackVariant = ItemVariant.of(stack);
-            if (!stackVariant.equals(variant)) continue;
+        long extracted;
+        try (Transaction transaction = Transaction.openNested(parent)) {
+            extracted = extract(variant, amount, transaction);
+            transaction.commit();
+        }
 
-            int toExtract = Math.min(amount - extracted, stack.getCount());
-            stack.decrement(toExtract);
-            inv.markDirty();
-            extracted += toExtract;
+        if (extracted > 0) {
+            // Cache was already adjusted by the probe index deltas
+            return variant.toStack((int) extracted);
         }
 
-        return extracted;
+        return ItemStack.EMPTY;
     }
 
     public ItemStack insertItemStack(ItemStack stack) {
         if (stack.isEmpty()) return ItemStack.EMPTY;
 
-        ItemStack remaining = stack.copy();
-        insertItem(remaining);
-
-        // If insertItem doesn't return the remaining amount,
-        // you'll need to modify it to return what couldn't be inserted
-        // For now, assume it all gets inserted
-        return ItemStack.EMPTY;
+        return insertItem(stack.copy());
     }
 
 
     /**
-     * OPTIMIZATION: Marks network as dirty when items are inserted
-     * This ensures cache is updated on next tick without scanning every second
+     * Insert and commit in a transaction of its own - outer-level callers only
      */
     public ItemStack insertItem(ItemStack stack) {
+        try (Transaction transaction = Transaction.openOuter()) {
+            ItemStack remainder = insertItem(stack, transaction);
+            transaction.commit();
+            return remainder;
+        }
+    }
+
+    /**
+     * Insert as part of the caller's transaction.
+     * Inserted amounts reach the cache as probe index deltas - no rescan
+     */
+    public ItemStack insertItem(ItemStack stack, TransactionContext parent) {
         if (world == null || stack.isEmpty()) {
             return stack;
         }
@@ -327,109 +662,399 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
         ItemVariant variant = ItemVariant.of(stack);
         int remaining = stack.getCount();
 
-        List<BlockPos> sortedProbes = getSortedProbesByPriority();
+        try (Transaction transaction = Transaction.openNested(parent)) {
+            remaining -= (int) insert(variant, remaining, transaction);
+            transaction.commit();
+        }
 
-        for (int i = 0; i < sortedProbes.size(); i++) {
-            if (remaining <= 0) break;
+        // OPTIMIZATION: Only mark dirty if something was inserted
+        if (remaining != stack.getCount()) {
+            markDirty();
+        }
 
-            BlockPos probePos = sortedProbes.get(i);
-            BlockEntity be = world.getBlockEntity(probePos);
+        return remaining > 0 ? variant.toStack(remaining) : ItemStack.EMPTY;
+    }
 
-            if (!(be instanceof OutputProbeBlockEntity probe)) {
-                continue;
+    /**
+     * Batch insert. Stacks are grouped by variant and routed in one pass over
+     * the routing table inside a single transaction; each touched probe pushes
+     * its index deltas once when it commits, so the network cache and viewers
+     * see a single update.
+     *
+     * @return remainder for each input stack, in iteration order (EMPTY if fully inserted)
+     */
+    public List<ItemStack> insertItems(Collection<ItemStack> stacks) {
+        try (Transaction transaction = Transaction.openOuter()) {
+            List<ItemStack> remainders = insertItems(stacks, transaction);
+            transaction.commit();
+            return remainders;
+        }
+    }
+
+    /**
+     * Batch insert as part of the caller's transaction (see {@link #insertItems(Collection)})
+     */
+    public List<ItemStack> insertItems(Collection<ItemStack> stacks, TransactionContext parent) {
+        List<ItemStack> remainders = new ArrayList<>(stacks.size());
+        if (world == null) {
+            for (ItemStack stack : stacks) remainders.add(stack.copy());
+            return remainders;
+        }
+
+        // Group by variant
+        Map<ItemVariant, Integer> pending = new LinkedHashMap<>();
+        for (ItemStack stack : stacks) {
+            if (stack.isEmpty()) continue;
+            pending.merge(ItemVariant.of(stack), stack.getCount(), Integer::sum);
+        }
+
+        Map<ItemVariant, Integer> requested = new HashMap<>(pending);
+        // Variants that already passed an accepting probe - only the first one becomes a sticky route
+        Set<ItemVariant> passedAccepting = new HashSet<>();
+        boolean insertedAny = false;
+
+        try (Transaction transaction = Transaction.openNested(parent)) {
+            // OPTIMIZATION: Sticky routes first - steady farm output never walks the table
+            Iterator<Map.Entry<ItemVariant, Integer>> stickyIt = pending.entrySet().iterator();
+            while (stickyIt.hasNext()) {
+                Map.Entry<ItemVariant, Integer> entry = stickyIt.next();
+                OutputProbeBlockEntity sticky = getStickyRoute(entry.getKey());
+                if (sticky == null) continue;
+
+                passedAccepting.add(entry.getKey());
+                int inserted = (int) insertSticky(sticky, entry.getKey(), entry.getValue(), transaction);
+                if (inserted <= 0) continue;
+
+                insertedAny = true;
+                int left = entry.getValue() - inserted;
+                if (left <= 0) {
+                    stickyIt.remove();
+                } else {
+                    entry.setValue(left);
+                }
             }
 
-            boolean accepts = probe.accepts(variant);
+            for (OutputProbeBlockEntity probe : getInsertOrder()) {
+                if (pending.isEmpty()) break;
 
-            if (!accepts) {
-                continue;
+                if (probe.isRemoved()) {
+                    routingDirty = true;
+                    continue;
+                }
+
+                Iterator<Map.Entry<ItemVariant, Integer>> it = pending.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<ItemVariant, Integer> entry = it.next();
+                    if (!probe.accepts(entry.getKey())) {
+                        // A full PRIORITY / ACCEPT_ALL probe still ranks above whatever takes the stack
+                        if (probe.outranksFor(entry.getKey())) passedAccepting.add(entry.getKey());
+                        continue;
+                    }
+
+                    boolean first = passedAccepting.add(entry.getKey());
+                    int inserted = (int) probe.insert(entry.getKey(), entry.getValue(), transaction);
+                    if (inserted <= 0) continue;
+
+                    insertedAny = true;
+                    int left = entry.getValue() - inserted;
+                    if (left <= 0) {
+                        if (first) rememberRoute(entry.getKey(), probe);
+                        it.remove();
+                    } else {
+                        entry.setValue(left);
+                    }
+                }
             }
 
-            ItemStack toInsert = variant.toStack(remaining);
-            int inserted = insertIntoInventory(world, probe, toInsert);
+            if (insertedAny) {
+                advanceRotation(transaction);
+                for (Map.Entry<ItemVariant, Integer> entry : requested.entrySet()) {
+                    long inserted = entry.getValue() - pending.getOrDefault(entry.getKey(), 0);
+                    if (inserted > 0) pendingChanges.record(entry.getKey(), inserted, transaction);
+                }
+            }
 
-            remaining -= inserted;
+            // Probes flush their index deltas once, when the outer transaction closes
+            transaction.commit();
         }
 
-        // OPTIMIZATION: Only mark dirty if something was inserted
-        if (remaining != stack.getCount()) {
-            networkDirty = true;
-            updateNetworkCache();
+        if (insertedAny) {
             markDirty();
         }
 
-        return remaining > 0 ? variant.toStack(remaining) : ItemStack.EMPTY;
+        // Hand the shortfall back: earlier stacks of a variant are filled first
+        Map<ItemVariant, Integer> placed = new HashMap<>();
+        for (Map.Entry<ItemVariant, Integer> entry : requested.entrySet()) {
+            placed.put(entry.getKey(), entry.getValue() - pending.getOrDefault(entry.getKey(), 0));
+        }
+        for (ItemStack stack : stacks) {
+            if (stack.isEmpty()) {
+                remainders.add(ItemStack.EMPTY);
+                continue;
+            }
+
+            ItemVariant variant = ItemVariant.of(stack);
+            int available = placed.getOrDefault(variant, 0);
+            int taken = Math.min(available, stack.getCount());
+            placed.put(variant, available - taken);
+
+            remainders.add(taken >= stack.getCount() ? ItemStack.EMPTY : stack.copyWithCount(stack.getCount() - taken));
+        }
+
+        return remainders;
     }
 
-    private List<BlockPos> getSortedProbesByPriority() {
-        List<BlockPos> filterProbes = new ArrayList<>();
-        List<BlockPos> priorityProbes = new ArrayList<>();
-        List<BlockPos> acceptAllProbes = new ArrayList<>();
+    public Storage<ItemVariant> getItemStorage() {
+        return itemStorage;
+    }
 
-        for (BlockPos probePos : linkedProbes) {
-            BlockEntity be = world.getBlockEntity(probePos);
-            if (!(be instanceof OutputProbeBlockEntity probe)) continue;
+    /**
+     * The network as one Storage: insert routes like insertItem, extract goes
+     * through the variant index, iteration walks the cached totals. Pipes and
+     * machines move any amount per call without per-slot emulation.
+     */
+    private class ControllerStorage implements Storage<ItemVariant> {
+        @Override
+        public long insert(ItemVariant resource, long maxAmount, TransactionContext transaction) {
+            StoragePreconditions.notBlankNotNegative(resource, maxAmount);
+            if (world == null || world.isClient()) return 0;
+            return StorageControllerBlockEntity.this.insert(resource, maxAmount, transaction);
+        }
 
-            switch (probe.mode) {
-                case FILTER -> filterProbes.add(probePos);
-                case PRIORITY -> priorityProbes.add(probePos);
-                case ACCEPT_ALL -> acceptAllProbes.add(probePos);
+        @Override
+        public long extract(ItemVariant resource, long maxAmount, TransactionContext transaction) {
+            StoragePreconditions.notBlankNotNegative(resource, maxAmount);
+            if (world == null || world.isClient()) return 0;
+            return StorageControllerBlockEntity.this.extract(resource, maxAmount, transaction);
+        }
+
+        @Override
+        public Iterator<StorageView<ItemVariant>> iterator() {
+            if (world == null || world.isClient()) return Collections.emptyIterator();
+
+            // Snapshot the keys - extraction while iterating changes the totals
+            List<StorageView<ItemVariant>> views = new ArrayList<>(networkItems.size());
+            for (ItemVariant variant : networkItems.keySet()) {
+                views.add(new NetworkView(variant));
             }
+            // Variants inserted by a transaction that hasn't closed yet
+            for (ItemVariant variant : pendingChanges.deltas.keySet()) {
+                if (!networkItems.containsKey(variant)) views.add(new NetworkView(variant));
+            }
+            return views.iterator();
         }
 
-        List<BlockPos> sorted = new ArrayList<>();
-        sorted.addAll(filterProbes);
-        sorted.addAll(priorityProbes);
-        sorted.addAll(acceptAllProbes);
+        @Override
+        public long getVersion() {
+            return networkVersion;
+        }
+    }
+
+    /**
+     * One network variant; amount is read live from the cache
+     */
+    private class NetworkView implements StorageView<ItemVariant> {
+        private final ItemVariant variant;
 
-        return sorted;
+        NetworkView(ItemVariant variant) {
+            this.variant = variant;
+        }
+
+        @Override
+        public long extract(ItemVariant resource, long maxAmount, TransactionContext transaction) {
+            StoragePreconditions.notBlankNotNegative(resource, maxAmount);
+            if (!resource.equals(variant)) return 0;
+            return StorageControllerBlockEntity.this.extract(resource, maxAmount, transaction);
+        }
+
+        @Override
+        public boolean isResourceBlank() {
+            return getAmount() == 0;
+        }
+
+        @Override
+        public ItemVariant getResource() {
+            return variant;
+        }
+
+        @Override
+        public long getAmount() {
+            return Math.max(0, networkItems.getOrDefault(variant, 0L) + pendingChanges.deltas.getOrDefault(variant, 0L));
+        }
+
+        @Override
+        public long getCapacity() {
+            return getAmount();
+        }
     }
 
-    private int insertIntoInventory(World world, OutputProbeBlockEntity probe, ItemStack stack) {
-        Inventory inv = probe.getTargetInventory();
+    /**
+     * Amounts moved through this controller in transactions that are still open.
+     * networkItems only catches up when the probes flush on outer close, so the
+     * views add these on top until then; every change (and rollback) bumps
+     * networkVersion. Entries are journaled so a nested abort undoes just its part.
+     */
+    private class PendingChanges extends SnapshotParticipant<Integer> {
+        private final Map<ItemVariant, Long> deltas = new HashMap<>();
+        private final List<ItemVariant> journalVariants = new ArrayList<>();
+        private final List<Long> journalDeltas = new ArrayList<>();
+
+        void record(ItemVariant variant, long delta, TransactionContext transaction) {
+            updateSnapshots(transaction);
+            deltas.merge(variant, delta, Long::sum);
+            journalVariants.add(variant);
+            journalDeltas.add(delta);
+            networkVersion++;
+        }
+
+        @Override
+        protected Integer createSnapshot() {
+            return journalVariants.size();
+        }
+
+        @Override
+        protected void readSnapshot(Integer size) {
+            for (int i = journalVariants.size() - 1; i >= size; i--) {
+                ItemVariant variant = journalVariants.remove(i);
+                long delta = journalDeltas.remove(i);
+                if (deltas.merge(variant, -delta, Long::sum) == 0) deltas.remove(variant);
+            }
+            networkVersion++;
+        }
 
-        if (inv == null) {
-            return 0;
+        @Override
+        protected void onFinalCommit() {
+            // networkItems catches up from the probes' own outer-close flushes
+            deltas.clear();
+            journalVariants.clear();
+            journalDeltas.clear();
         }
+    }
 
-        int originalCount = stack.getCount();
+    /**
+     * Probes in insertion order (FILTER -> PRIORITY -> ACCEPT_ALL), resolved
+     * to block entities. Only rebuilt after a link, unlink, mode change or probe reload.
+     */
+    private List<OutputProbeBlockEntity> getRoutingTable() {
+        if (!routingDirty) return routingTable;
+        routingDirty = false;
 
-        for (int i = 0; i < inv.size(); i++) {
-            if (stack.isEmpty()) break;
+        // Probe references or their order changed - cached routes may be stale
+        routeCache.clear();
 
-            ItemStack slotStack = inv.getStack(i);
-            if (slotStack.isEmpty()) continue;
+        List<OutputProbeBlockEntity> filterProbes = new ArrayList<>();
+        List<OutputProbeBlockEntity> priorityProbes = new ArrayList<>();
+        List<OutputProbeBlockEntity> acceptAllProbes = new ArrayList<>();
 
-            if (ItemStack.areItemsAndComponentsEqual(slotStack, stack)) {
-                int maxStack = Math.min(slotStack.getMaxCount(), inv.getMaxCountPerStack());
-                int canAdd = maxStack - slotStack.getCount();
+        for (BlockPos probePos : linkedProbes) {
+            BlockEntity be = world.getBlockEntity(probePos);
+            if (!(be instanceof OutputProbeBlockEntity probe)) continue;
 
-                if (canAdd > 0) {
-                    int toAdd = Math.min(canAdd, stack.getCount());
-                    slotStack.setCount(slotStack.getCount() + toAdd);
-                    stack.decrement(toAdd);
-                    inv.markDirty();
-                }
+            switch (probe.mode) {
+                case FILTER -> filterProbes.add(probe);
+                case PRIORITY -> priorityProbes.add(probe);
+                case ACCEPT_ALL -> acceptAllProbes.add(probe);
             }
         }
 
-        for (int i = 0; i < inv.size(); i++) {
-            if (stack.isEmpty()) break;
+        routingTable.clear();
+        routingTable.addAll(filterProbes);
+        routingTable.addAll(priorityProbes);
+        routingTable.addAll(acceptAllProbes);
+        filterProbeCount = filterProbes.size();
+        priorityProbeCount = priorityProbes.size();
+
+        return routingTable;
+    }
 
-            ItemStack slotStack = inv.getStack(i);
-            if (!slotStack.isEmpty()) continue;
+    /**
+     * Routing table with the PRIORITY and ACCEPT_ALL groups ordered by the
+     * distribution mode. FIRST_FIT returns the table itself.
+     */
+    private List<OutputProbeBlockEntity> getInsertOrder() {
+        List<OutputProbeBlockEntity> table = getRoutingTable();
+        if (distributionMode == DistributionMode.FIRST_FIT) return table;
+
+        int priorityEnd = filterProbeCount + priorityProbeCount;
+        List<OutputProbeBlockEntity> order = new ArrayList<>(table.size());
+        order.addAll(table.subList(0, filterProbeCount));
+        distributionMode.order(table.subList(filterProbeCount, priorityEnd),
+                roundRobinCursor, OutputProbeBlockEntity::getFillLevel, order);
+        distributionMode.order(table.subList(priorityEnd, table.size()),
+                roundRobinCursor, OutputProbeBlockEntity::getFillLevel, order);
+        return order;
+    }
+
+    // ===================================================================
+    // STICKY ROUTES
+    // ===================================================================
+
+    /**
+     * Cached destination for a variant. Only used with FIRST_FIT - the other
+     * modes spread inserts on purpose.
+     */
+    @Nullable
+    private OutputProbeBlockEntity getStickyRoute(ItemVariant variant) {
+        if (distributionMode != DistributionMode.FIRST_FIT) return null;
+        if (routingDirty) getRoutingTable(); // clears stale routes
+
+        OutputProbeBlockEntity probe = routeCache.get(variant);
+        if (probe != null && probe.isRemoved()) {
+            routeCache.invalidate(variant);
+            return null;
+        }
+        return probe;
+    }
 
-            int maxStack = Math.min(stack.getMaxCount(), inv.getMaxCountPerStack());
-            int toAdd = Math.min(maxStack, stack.getCount());
+    /**
+     * Insert into the cached destination; drop the route once it can't take everything (full)
+     */
+    private long insertSticky(OutputProbeBlockEntity probe, ItemVariant variant, long amount, TransactionContext transaction) {
+        long inserted = probe.insert(variant, amount, transaction);
+        if (inserted < amount) routeCache.invalidate(variant);
+        return inserted;
+    }
 
-            ItemStack newStack = stack.copy();
-            newStack.setCount(toAdd);
-            inv.setStack(i, newStack);
-            stack.decrement(toAdd);
-            inv.markDirty();
+    private void rememberRoute(ItemVariant variant, OutputProbeBlockEntity probe) {
+        if (distributionMode == DistributionMode.FIRST_FIT) {
+            routeCache.put(variant, probe);
         }
+    }
+
+    /**
+     * Called by a linked FILTER probe when the set of items it accepts changed
+     */
+    public void onProbeFilterChanged(OutputProbeBlockEntity probe) {
+        routeCache.clear();
+    }
+
+    /**
+     * Round-robin moves on once per committed insert (simulations don't count)
+     */
+    private void advanceRotation(TransactionContext transaction) {
+        if (distributionMode != DistributionMode.ROUND_ROBIN) return;
+        transaction.addOuterCloseCallback(result -> {
+            if (result.wasCommitted()) roundRobinCursor++;
+        });
+    }
+
+    public DistributionMode getDistributionMode() {
+        return distributionMode;
+    }
+
+    public void cycleDistributionMode() {
+        distributionMode = distributionMode.next();
+        roundRobinCursor = 0;
+        routeCache.clear();
+        markDirty();
+    }
 
-        return originalCount - stack.getCount();
+    /**
+     * Called by a linked probe when its mode changes
+     */
+    public void onProbeModeChanged(OutputProbeBlockEntity probe) {
+        routingDirty = true;
+        routeCache.clear();
     }
 
     // Inventory implementation
@@ -490,6 +1115,8 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
 
     private void readProbesFromView(ReadView view) {
         linkedProbes.clear();
+        needsRebuild = true;
+        routingDirty = true;
         int count = view.getInt("probe_count", 0);
         for (int i = 0; i < count; i++) {
             Optional<Long> maybe = view.getOptionalLong("probe_" + i);
@@ -508,14 +1135,6 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
         return createNbt(registryLookup);
     }
 
-    /**
-     * Called when a linked probe's inventory changes
-     * Marks the network as dirty so it updates on next tick
-     */
-    public void onProbeInventoryChanged(OutputProbeBlockEntity probe) {
-        networkDirty = true;
-    }
-
     /**
      * Remove a probe by position
      * Called when probe is broken or unlinked
@@ -523,7 +1142,7 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
     public boolean removeProbe(BlockPos probePos) {
         boolean removed = linkedProbes.remove(probePos);
         if (removed) {
-            networkDirty = true;
+            unaccountProbe(probePos);
             markDirty();
 
             if (world != null) {
@@ -570,6 +1189,7 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
 
         // Store in controller
         linkedProcessProbes.put(pos, config);
+        probeConfigVersion++;
         // LOGGER.info("Total registered probes: {}", linkedProcessProbes.size());
 
         // Update the probe with the merged config
@@ -631,6 +1251,7 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
 
             // Remove from controller
             linkedProcessProbes.remove(pos);
+            probeConfigVersion++;
 
             //LOGGER.info("Unregistered process probe at {} (was: {})", pos, config.machineType);
             markDirty();
@@ -648,6 +1269,7 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
         if (linkedProcessProbes.containsKey(config.position)) {
             // Update in controller
             linkedProcessProbes.put(config.position, config.copy());
+            probeConfigVersion++;
 
             // Also save to the probe itself
             if (world != null) {
@@ -675,6 +1297,10 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
         return new LinkedHashMap<>(linkedProcessProbes);
     }
 
+    public int getProbeConfigVersion() {
+        return probeConfigVersion;
+    }
+
     /**
      * Get config for a specific probe
      */
@@ -736,6 +1362,7 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
     public void writeData(WriteView view) {
         super.writeData(view);
         writeProbesToView(view);
+        view.putString("distribution", distributionMode.asString());
 
         // Write process probe configs as NbtCompound
         NbtCompound probeData = new NbtCompound();
@@ -774,6 +1401,7 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
     public void readData(ReadView view) {
         super.readData(view);
         readProbesFromView(view);
+        distributionMode = DistributionMode.fromString(view.getString("distribution", "first_fit"));
 
         // Read process probe configs
         linkedProcessProbes.clear();
@@ -806,10 +1434,38 @@ public class StorageControllerBlockEntity extends BlockEntity implements NamedSc
         storedExperience = view.getInt("storedXp", 0);
     }
 
+    /**
+     * 1.21.5+: called while the block is being broken/replaced - unlink the
+     * output probes right away instead of leaving it to their periodic check
+     */
+    @Override
+    public void onBlockReplaced(BlockPos pos, BlockState oldState) {
+        super.onBlockReplaced(pos, oldState);
+        if (world == null || world.isClient()) return;
+
+        for (BlockPos probePos : linkedProbes) {
+            if (!LinkValidation.isLoaded(world, probePos)) continue;
+            if (world.getBlockEntity(probePos) instanceof OutputProbeBlockEntity probe) {
+                probe.removeLinkedBlock(pos);
+            }
+        }
+        onRemoved();
+        world.updateComparators(pos, oldState.getBlock());
+    }
+
     public void onRemoved() {
         linkedProbes.clear();
         networkItems.clear();
+        variantLocations.clear();
+        accountedIndexes.clear();
+        accountedSlots.clear();
+        totalCapacity = 0;
+        totalUsedSlots = 0;
+        routingTable.clear();
         linkedProcessProbes.clear(); // Add this line
+        sortedIndex.clear();
+        networkVersion++;
+        networkKeyVersion++;
     }
 
 }
\ No newline at end of file
@@ -16,6 +16,7 @@ import net.shaddii.smartsorter.blockentity.IntakeBlockEntity;
 import net.shaddii.smartsorter.blockentity.OutputProbeBlockEntity;
 import net.shaddii.smartsorter.blockentity.ProcessProbeBlockEntity;
 import net.shaddii.smartsorter.blockentity.StorageControllerBlockEntity;
+import net.shaddii.smartsorter.util.DistributionMode;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -27,7 +28,9 @@ import java.util.UUID;
  * NEW WORKFLOW:
  * 1. Right-click Storage Controller → Stores it
  * 2. Right-click any probe(s) → Links each to stored controller
- * 3. Shift+Right-click → Clear stored controller
+ * 3. Shift+Right-click → Clear stored controller (on an Output Probe: cycle mode)
+ *
+ * Distribution mode: right-click the selected controller again, or right-click an intake
  */
 public class LinkingToolItem extends Item {
 
@@ -82,6 +85,14 @@ public class LinkingToolItem extends Item {
 
         // === STEP 1: Click on Storage Controller to store it ===
         if (blockState.getBlock() instanceof StorageControllerBlock) {
+            // Clicking the controller that's already selected cycles its distribution
+            if (pos.equals(STORED_CONTROLLER.get(player.getUuid()))
+                    && world.getBlockEntity(pos) instanceof StorageControllerBlockEntity controller) {
+                controller.cycleDistributionMode();
+                sendDistribution(player, controller.getDistributionMode());
+                return ActionResult.SUCCESS;
+            }
+
             STORED_CONTROLLER.put(player.getUuid(), pos);
 
             player.sendMessage(
@@ -177,41 +188,27 @@ public class LinkingToolItem extends Item {
             }
         }
 
-        // === STEP 4: Click on Intake Block to link ===
+        // === STEP 4: Click on Intake Block to cycle its distribution ===
+        // Intakes don't link to controllers (intake → output probe → controller)
         if (blockState.getBlock() instanceof IntakeBlock) {
-            BlockPos controllerPos = STORED_CONTROLLER.get(player.getUuid());
-
-            if (controllerPos == null) {
-                player.sendMessage(Text.literal("§eSelect a Storage Controller first!").formatted(Formatting.RED), true);
-                return ActionResult.FAIL;
-            }
-
-            var controllerBE = world.getBlockEntity(controllerPos);
-            if (!(controllerBE instanceof StorageControllerBlockEntity)) {
-                player.sendMessage(Text.literal("§cController no longer exists!").formatted(Formatting.RED), true);
-                STORED_CONTROLLER.remove(player.getUuid());
-                return ActionResult.FAIL;
-            }
-
-            var intakeBE = world.getBlockEntity(pos);
-            if (!(intakeBE instanceof IntakeBlockEntity intake)) {
+            if (!(world.getBlockEntity(pos) instanceof IntakeBlockEntity intake)) {
                 player.sendMessage(Text.literal("§cIntake not found!").formatted(Formatting.RED), true);
                 return ActionResult.FAIL;
             }
 
-            // Note: Intake doesn't directly link to controller
-            // You'll need to link intake → output probe → controller
-            player.sendMessage(
-                    Text.literal("§eIntake blocks don't link directly to controllers\n§7Link them to Output Probes instead"),
-                    false
-            );
-            return ActionResult.FAIL;
+            intake.cycleDistributionMode();
+            sendDistribution(player, intake.getDistributionMode());
+            return ActionResult.SUCCESS;
         }
 
         player.sendMessage(Text.literal("§7Click Storage Controller first, then click probes to link").formatted(Formatting.GRAY), true);
         return ActionResult.PASS;
     }
 
+    private static void sendDistribution(PlayerEntity player, DistributionMode mode) {
+        player.sendMessage(Text.literal("§7Distribution: §b" + mode.getDisplayName()), true);
+    }
+
     private String formatPos(BlockPos pos) {
         return pos.getX() + ", " + pos.getY() + ", " + pos.getZ();
     }
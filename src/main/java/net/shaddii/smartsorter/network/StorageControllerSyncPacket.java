@@ -1,7 +1,6 @@
 package net.shaddii.smartsorter.network;
 
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
-import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
 import net.minecraft.item.ItemStack;
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
@@ -17,20 +16,67 @@ import net.shaddii.smartsorter.util.RecipeFilterMode;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Controller screen item sync.
+ *
+ * OPTIMIZATION: Versioned delta protocol
+ * - SyncPayload is a full snapshot, sent once when a viewer opens the screen
+ *   (or asks for a resync)
+ * - DeltaPayload only carries variants whose count changed since the last
+ *   packet (count 0 = removed), numbered by a per-viewer sequence
+ * - A client that sees a sequence gap drops deltas and requests a new snapshot
+ * - Variants are sent as VariantPalette ids; a full ItemStack only goes out
+ *   the first time a viewer sees a variant
+ * - Huge networks use the windowed view instead: snapshot/deltas carry no
+ *   items, WindowPayload carries only the page the client is looking at
+ */
 public class StorageControllerSyncPacket {
     public static final Identifier ID = Identifier.of(SmartSorter.MOD_ID, "storage_sync");
+    public static final Identifier DELTA_ID = Identifier.of(SmartSorter.MOD_ID, "storage_sync_delta");
+    public static final Identifier WINDOW_ID = Identifier.of(SmartSorter.MOD_ID, "storage_sync_window");
 
-    public static void send(ServerPlayerEntity player, Map<ItemVariant, Long> items, int storedXp, Map<BlockPos, ProcessProbeConfig> probeConfigs) {
+    public static void send(ServerPlayerEntity player, int sequence, VariantPalette.Entries items, int storedXp,
+                            Map<BlockPos, ProcessProbeConfig> probeConfigs, int freeSlots, int totalSlots) {
         // Get the cursor from the player's currently open screen handler
         ItemStack cursorStack = player.currentScreenHandler.getCursorStack();
-        ServerPlayNetworking.send(player, new SyncPayload(items, storedXp, probeConfigs, cursorStack));
+        ServerPlayNetworking.send(player, new SyncPayload(sequence, items, storedXp, probeConfigs, cursorStack, freeSlots, totalSlots));
+    }
+
+    public static void sendDelta(ServerPlayerEntity player, int sequence, VariantPalette.Entries changes, int storedXp,
+                                 boolean resetConfigs, int freeSlots, int totalSlots) {
+        ItemStack cursorStack = player.currentScreenHandler.getCursorStack();
+        ServerPlayNetworking.send(player, new DeltaPayload(sequence, changes, storedXp, resetConfigs, cursorStack, freeSlots, totalSlots));
+    }
+
+    public static void sendWindow(ServerPlayerEntity player, int totalMatches, int offset, VariantPalette.Entries entries) {
+        ServerPlayNetworking.send(player, new WindowPayload(totalMatches, offset, entries));
+    }
+
+    private static void writeCursor(RegistryByteBuf buf, ItemStack cursorStack) {
+        // Manually handle empty cursor stack
+        if (cursorStack.isEmpty()) {
+            buf.writeBoolean(false); // Write 'false' to indicate no item stack follows
+        } else {
+            buf.writeBoolean(true);  // Write 'true' to indicate an item stack follows
+            ItemStack.PACKET_CODEC.encode(buf, cursorStack); // Now, safely write the stack
+        }
+    }
+
+    private static ItemStack readCursor(RegistryByteBuf buf) {
+        if (buf.readBoolean()) { // Read the boolean flag first
+            return ItemStack.PACKET_CODEC.decode(buf); // If true, read the stack
+        }
+        return ItemStack.EMPTY; // If false, use an empty stack
     }
 
     public record SyncPayload(
-            Map<ItemVariant, Long> items,
+            int sequence,
+            VariantPalette.Entries items,
             int storedXp,
             Map<BlockPos, ProcessProbeConfig> probeConfigs,
-            ItemStack cursorStack
+            ItemStack cursorStack,
+            int freeSlots,
+            int totalSlots
     ) implements CustomPayload {
         public static final CustomPayload.Id<SyncPayload> ID_PAYLOAD = new CustomPayload.Id<>(ID);
 
@@ -45,15 +91,12 @@ public class StorageControllerSyncPacket {
         }
 
         public static void write(RegistryByteBuf buf, SyncPayload payload) {
-            // Write items (unchanged)
-            buf.writeVarInt(payload.items.size());
-            for (Map.Entry<ItemVariant, Long> entry : payload.items.entrySet()) {
-                ItemStack stack = entry.getKey().toStack(1);
-                ItemStack.PACKET_CODEC.encode(buf, stack);
-                buf.writeVarLong(entry.getValue());
-            }
+            buf.writeVarInt(payload.sequence);
+
+            // Write items
+            payload.items.write(buf);
 
-            // Write stored XP (unchanged)
+            // Write stored XP
             buf.writeVarInt(payload.storedXp);
 
             // Write probe configs (unchanged)
@@ -73,27 +116,20 @@ public class StorageControllerSyncPacket {
                 buf.writeVarInt(config.index);
             }
 
-            // Manually handle empty cursor stack
-            if (payload.cursorStack.isEmpty()) {
-                buf.writeBoolean(false); // Write 'false' to indicate no item stack follows
-            } else {
-                buf.writeBoolean(true);  // Write 'true' to indicate an item stack follows
-                ItemStack.PACKET_CODEC.encode(buf, payload.cursorStack); // Now, safely write the stack
-            }
+            writeCursor(buf, payload.cursorStack);
+
+            // Capacity counters (maintained server-side, no scan)
+            buf.writeVarInt(payload.freeSlots);
+            buf.writeVarInt(payload.totalSlots);
         }
 
         public static SyncPayload read(RegistryByteBuf buf) {
-            // Read items (unchanged)
-            Map<ItemVariant, Long> items = new HashMap<>();
-            int itemCount = buf.readVarInt();
-            for (int i = 0; i < itemCount; i++) {
-                ItemStack stack = ItemStack.PACKET_CODEC.decode(buf);
-                ItemVariant variant = ItemVariant.of(stack);
-                long amount = buf.readVarLong();
-                items.put(variant, amount);
-            }
+            int sequence = buf.readVarInt();
 
-            // Read stored XP (unchanged)
+            // Read items
+            VariantPalette.Entries items = VariantPalette.Entries.read(buf);
+
+            // Read stored XP
             int storedXp = buf.readVarInt();
 
             // Read probe configs (unchanged)
@@ -116,15 +152,92 @@ public class StorageControllerSyncPacket {
                 probeConfigs.put(pos, config);
             }
 
-            // Manually read cursor stack
-            ItemStack cursorStack;
-            if (buf.readBoolean()) { // Read the boolean flag first
-                cursorStack = ItemStack.PACKET_CODEC.decode(buf); // If true, read the stack
-            } else {
-                cursorStack = ItemStack.EMPTY; // If false, use an empty stack
-            }
+            ItemStack cursorStack = readCursor(buf);
+
+            // Read capacity counters
+            int freeSlots = buf.readVarInt();
+            int totalSlots = buf.readVarInt();
+
+            return new SyncPayload(sequence, items, storedXp, probeConfigs, cursorStack, freeSlots, totalSlots);
+        }
+    }
+
+    /**
+     * Changes since the previous packet with sequence - 1.
+     * A count of 0 means the variant left the network.
+     * resetConfigs: probe configs changed, the client clears them and batches follow.
+     */
+    public record DeltaPayload(
+            int sequence,
+            VariantPalette.Entries changes,
+            int storedXp,
+            boolean resetConfigs,
+            ItemStack cursorStack,
+            int freeSlots,
+            int totalSlots
+    ) implements CustomPayload {
+        public static final CustomPayload.Id<DeltaPayload> ID_PAYLOAD = new CustomPayload.Id<>(DELTA_ID);
+
+        public static final PacketCodec<RegistryByteBuf, DeltaPayload> CODEC = PacketCodec.of(
+                (value, buf) -> write(buf, value),
+                buf -> read(buf)
+        );
+
+        @Override
+        public Id<? extends CustomPayload> getId() {
+            return ID_PAYLOAD;
+        }
+
+        public static void write(RegistryByteBuf buf, DeltaPayload payload) {
+            buf.writeVarInt(payload.sequence);
+            payload.changes.write(buf);
+            buf.writeVarInt(payload.storedXp);
+            buf.writeBoolean(payload.resetConfigs);
+            writeCursor(buf, payload.cursorStack);
+            buf.writeVarInt(payload.freeSlots);
+            buf.writeVarInt(payload.totalSlots);
+        }
+
+        public static DeltaPayload read(RegistryByteBuf buf) {
+            int sequence = buf.readVarInt();
+            VariantPalette.Entries changes = VariantPalette.Entries.read(buf);
+            int storedXp = buf.readVarInt();
+            boolean resetConfigs = buf.readBoolean();
+            ItemStack cursorStack = readCursor(buf);
+            int freeSlots = buf.readVarInt();
+            int totalSlots = buf.readVarInt();
+            return new DeltaPayload(sequence, changes, storedXp, resetConfigs, cursorStack, freeSlots, totalSlots);
+        }
+    }
+
+    /**
+     * Windowed view: the filtered/sorted matches [offset, offset + entries.size())
+     * in display order, out of totalMatches
+     */
+    public record WindowPayload(int totalMatches, int offset, VariantPalette.Entries entries) implements CustomPayload {
+        public static final CustomPayload.Id<WindowPayload> ID_PAYLOAD = new CustomPayload.Id<>(WINDOW_ID);
+
+        public static final PacketCodec<RegistryByteBuf, WindowPayload> CODEC = PacketCodec.of(
+                (value, buf) -> write(buf, value),
+                buf -> read(buf)
+        );
+
+        @Override
+        public Id<? extends CustomPayload> getId() {
+            return ID_PAYLOAD;
+        }
+
+        public static void write(RegistryByteBuf buf, WindowPayload payload) {
+            buf.writeVarInt(payload.totalMatches);
+            buf.writeVarInt(payload.offset);
+            payload.entries.write(buf);
+        }
 
-            return new SyncPayload(items, storedXp, probeConfigs, cursorStack);
+        public static WindowPayload read(RegistryByteBuf buf) {
+            int totalMatches = buf.readVarInt();
+            int offset = buf.readVarInt();
+            VariantPalette.Entries entries = VariantPalette.Entries.read(buf);
+            return new WindowPayload(totalMatches, offset, entries);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+package net.shaddii.smartsorter.network;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.minecraft.item.ItemStack;
+import net.minecraft.network.RegistryByteBuf;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-screen-session ItemVariant <-> varint id table.
+ *
+ * OPTIMIZATION: The server gives each variant an id the first time a viewer
+ * is sent it; the full ItemStack goes over the wire (and is decoded) only
+ * then. After that sync packets and extraction requests just carry the id.
+ *
+ * Ids are assigned in order, so the definitions in one packet are always
+ * the contiguous range starting at {@link Entries#firstNewId}. Both sides
+ * keep one palette per open screen handler - a new screen starts a new one.
+ */
+public class VariantPalette {
+    private final List<ItemVariant> byId = new ArrayList<>();
+    private final Object2IntOpenHashMap<ItemVariant> ids = new Object2IntOpenHashMap<>();
+
+    public VariantPalette() {
+        ids.defaultReturnValue(-1);
+    }
+
+    /**
+     * Counts keyed by palette id, plus the variants defined by this packet
+     */
+    public record Entries(int firstNewId, List<ItemVariant> definitions, int[] variantIds, long[] counts) {
+        public int size() {
+            return variantIds.length;
+        }
+
+        public void write(RegistryByteBuf buf) {
+            buf.writeVarInt(firstNewId);
+            buf.writeVarInt(definitions.size());
+            for (ItemVariant variant : definitions) {
+                ItemStack.PACKET_CODEC.encode(buf, variant.toStack(1));
+            }
+
+            buf.writeVarInt(variantIds.length);
+            for (int i = 0; i < variantIds.length; i++) {
+                buf.writeVarInt(variantIds[i]);
+                buf.writeVarLong(counts[i]);
+            }
+        }
+
+        public static Entries read(RegistryByteBuf buf) {
+            int firstNewId = buf.readVarInt();
+            int definitionCount = buf.readVarInt();
+            List<ItemVariant> definitions = new ArrayList<>(definitionCount);
+            for (int i = 0; i < definitionCount; i++) {
+                definitions.add(ItemVariant.of(ItemStack.PACKET_CODEC.decode(buf)));
+            }
+
+            int count = buf.readVarInt();
+            int[] variantIds = new int[count];
+            long[] counts = new long[count];
+            for (int i = 0; i < count; i++) {
+                variantIds[i] = buf.readVarInt();
+                counts[i] = buf.readVarLong();
+            }
+            return new Entries(firstNewId, definitions, variantIds, counts);
+        }
+    }
+
+    // ===================================================================
+    // SERVER
+    // ===================================================================
+
+    /**
+     * Server: encode counts by id, assigning ids to variants this viewer hasn't seen
+     */
+    public Entries encode(Map<ItemVariant, Long> items) {
+        int firstNewId = byId.size();
+        int[] variantIds = new int[items.size()];
+        long[] counts = new long[items.size()];
+
+        int i = 0;
+        for (Map.Entry<ItemVariant, Long> entry : items.entrySet()) {
+            variantIds[i] = idOf(entry.getKey());
+            counts[i] = entry.getValue();
+            i++;
+        }
+
+        List<ItemVariant> definitions = new ArrayList<>(byId.subList(firstNewId, byId.size()));
+        return new Entries(firstNewId, definitions, variantIds, counts);
+    }
+
+    private int idOf(ItemVariant variant) {
+        int id = ids.getInt(variant);
+        if (id < 0) {
+            id = byId.size();
+            byId.add(variant);
+            ids.put(variant, id);
+        }
+        return id;
+    }
+
+    // ===================================================================
+    // CLIENT
+    // ===================================================================
+
+    /**
+     * Client: learn a packet's definitions. Must run for every packet, even
+     * one whose counts are thrown away, or later ids won't resolve.
+     */
+    public void define(Entries entries) {
+        int id = entries.firstNewId();
+        for (ItemVariant variant : entries.definitions()) {
+            while (byId.size() < id) byId.add(null);
+            if (id < byId.size()) {
+                byId.set(id, variant);
+            } else {
+                byId.add(variant);
+            }
+            ids.put(variant, id);
+            id++;
+        }
+    }
+
+    /**
+     * Client: resolve a packet's counts (call {@link #define} first)
+     */
+    public Map<ItemVariant, Long> decode(Entries entries) {
+        Map<ItemVariant, Long> items = new HashMap<>(Math.max(16, entries.size() * 4 / 3 + 1));
+        for (int i = 0; i < entries.size(); i++) {
+            ItemVariant variant = get(entries.variantIds()[i]);
+            if (variant != null) items.put(variant, entries.counts()[i]);
+        }
+        return items;
+    }
+
+    // ===================================================================
+    // SHARED
+    // ===================================================================
+
+    @Nullable
+    public ItemVariant get(int id) {
+        return id >= 0 && id < byId.size() ? byId.get(id) : null;
+    }
+
+    /**
+     * Id of a known variant, -1 if it was never sent
+     */
+    public int find(ItemVariant variant) {
+        return ids.getInt(variant);
+    }
+
+    /**
+     * A variant in a client request: its id if the palette knows it,
+     * otherwise the full variant
+     */
+    public record Ref(int id, ItemVariant variant) {
+        public static Ref of(VariantPalette palette, ItemVariant variant) {
+            int id = palette.find(variant);
+            return new Ref(id, id >= 0 ? ItemVariant.blank() : variant);
+        }
+
+        @Nullable
+        public ItemVariant resolve(VariantPalette palette) {
+            return id >= 0 ? palette.get(id) : variant;
+        }
+
+        public void write(RegistryByteBuf buf) {
+            if (id >= 0) {
+                buf.writeVarInt(id + 1);
+            } else {
+                buf.writeVarInt(0);
+                ItemStack.PACKET_CODEC.encode(buf, variant.toStack(1));
+            }
+        }
+
+        public static Ref read(RegistryByteBuf buf) {
+            int ref = buf.readVarInt();
+            if (ref > 0) return new Ref(ref - 1, ItemVariant.blank());
+            return new Ref(-1, ItemVariant.of(ItemStack.PACKET_CODEC.decode(buf)));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package net.shaddii.smartsorter.network;
+
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+import net.shaddii.smartsorter.SmartSorter;
+import net.shaddii.smartsorter.util.Category;
+import net.shaddii.smartsorter.util.CategoryManager;
+import net.shaddii.smartsorter.util.SortMode;
+
+/**
+ * Client -> Server: what a windowed-view client is looking at.
+ * The server answers with the matching page (StorageControllerSyncPacket.WindowPayload).
+ */
+public record ViewWindowPayload(String sortMode, String categoryId, String search, int offset, int length)
+        implements CustomPayload {
+    public static final int MAX_SEARCH_LENGTH = 256;
+
+    public static final CustomPayload.Id<ViewWindowPayload> ID =
+            new CustomPayload.Id<>(Identifier.of(SmartSorter.MOD_ID, "view_window"));
+
+    public static final PacketCodec<RegistryByteBuf, ViewWindowPayload> CODEC =
+            PacketCodec.of(
+                    (value, buf) -> write(buf, value),
+                    buf -> read(buf)
+            );
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+
+    public static void write(RegistryByteBuf buf, ViewWindowPayload payload) {
+        buf.writeString(payload.sortMode);
+        buf.writeString(payload.categoryId);
+        buf.writeString(payload.search, MAX_SEARCH_LENGTH);
+        buf.writeVarInt(payload.offset);
+        buf.writeVarInt(payload.length);
+    }
+
+    public static ViewWindowPayload read(RegistryByteBuf buf) {
+        String sortMode = buf.readString();
+        String categoryId = buf.readString();
+        String search = buf.readString(MAX_SEARCH_LENGTH);
+        int offset = buf.readVarInt();
+        int length = buf.readVarInt();
+        return new ViewWindowPayload(sortMode, categoryId, search, offset, length);
+    }
+
+    public SortMode getSortMode() {
+        return SortMode.fromString(sortMode);
+    }
+
+    public Category getCategory() {
+        return CategoryManager.getInstance().getCategory(categoryId);
+    }
+}
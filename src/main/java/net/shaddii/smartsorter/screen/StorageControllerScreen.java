@@ -87,8 +87,9 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
     private static final int SCROLLBAR_WIDTH = 14;
     private static final int SCROLLBAR_HEIGHT = 90;
 
-    // Cached network items
+    // Cached network items (windowed view: only the page starting at listOffset)
     private List<Map.Entry<ItemVariant, Long>> networkItemsList = new ArrayList<>();
+    private int listOffset = 0;
     private int maxScrollRows = 0;
 
     // Dirty flag
@@ -382,6 +383,17 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
     }
 
     public void updateNetworkItems() {
+        // Server already filtered, sorted and paged - nothing to do here
+        if (handler.isWindowed()) {
+            networkItemsList = handler.getWindowItems();
+            listOffset = handler.getWindowOffset();
+
+            int totalRows = (int) Math.ceil(handler.getWindowTotal() / (double) ITEMS_PER_ROW);
+            maxScrollRows = Math.max(0, totalRows - VISIBLE_ROWS);
+            return;
+        }
+
+        listOffset = 0;
         Map<ItemVariant, Long> items = handler.getNetworkItems();
         networkItemsList = new ArrayList<>(items.entrySet());
 
@@ -430,6 +442,30 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
         needsRefresh = true;
     }
 
+    /**
+     * Number of entries the grid scrolls over (windowed view: all matches on the server)
+     */
+    private int getDisplayedCount() {
+        return handler.isWindowed() ? handler.getWindowTotal() : networkItemsList.size();
+    }
+
+    /**
+     * Entry at a grid index, or null if it's outside the page received so far
+     */
+    private Map.Entry<ItemVariant, Long> getDisplayedEntry(int index) {
+        int local = index - listOffset;
+        if (local < 0 || local >= networkItemsList.size()) return null;
+        return networkItemsList.get(local);
+    }
+
+    /**
+     * Windowed view: ask the server for the page currently scrolled to
+     */
+    private void requestVisibleWindow() {
+        int scrollOffset = (int) (scrollProgress * maxScrollRows);
+        handler.requestWindow(currentSearch, scrollOffset * ITEMS_PER_ROW, ITEMS_PER_PAGE);
+    }
+
     private void collectXp() {
         int xp = handler.getStoredExperience();
         if (xp > 0) {
@@ -483,6 +519,9 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
             updateNetworkItems();
             needsRefresh = false;
         }
+        if (currentTab == Tab.STORAGE && handler.isWindowed()) {
+            requestVisibleWindow();
+        }
 
         renderBackground(context, mouseX, mouseY, delta);
 
@@ -530,7 +569,7 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
 
         int scrollOffset = (int) (scrollProgress * maxScrollRows);
         int startIndex = scrollOffset * ITEMS_PER_ROW;
-        int endIndex = Math.min(startIndex + ITEMS_PER_PAGE, networkItemsList.size());
+        int endIndex = Math.min(startIndex + ITEMS_PER_PAGE, getDisplayedCount());
 
         for (int i = startIndex; i < endIndex; i++) {
             int relativeIndex = i - startIndex;
@@ -540,7 +579,8 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
             int slotX = x + GRID_START_X + (col * SLOT_SIZE);
             int slotY = y + GRID_START_Y + (row * SLOT_SIZE);
 
-            var entry = networkItemsList.get(i);
+            var entry = getDisplayedEntry(i);
+            if (entry == null) continue;
             ItemVariant variant = entry.getKey();
             long amount = entry.getValue();
 
@@ -804,7 +844,7 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
         if (clickInGrid) {
             int scrollOffset = (int) (scrollProgress * maxScrollRows);
             int startIndex = scrollOffset * ITEMS_PER_ROW;
-            int endIndex = Math.min(startIndex + ITEMS_PER_PAGE, networkItemsList.size());
+            int endIndex = Math.min(startIndex + ITEMS_PER_PAGE, getDisplayedCount());
 
             for (int i = startIndex; i < endIndex; i++) {
                 int relativeIndex = i - startIndex;
@@ -951,7 +991,8 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
     }
 
     private void handleNetworkSlotClick(int slotIndex, int button, boolean isShift, boolean isCtrl) {
-        var entry = networkItemsList.get(slotIndex);
+        var entry = getDisplayedEntry(slotIndex);
+        if (entry == null) return;
         ItemVariant variant = entry.getKey();
         long itemCount = entry.getValue();
 
@@ -1041,26 +1082,24 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
             context.drawText(textRenderer, Text.literal("Controller"), titleX, titleY, 0x404040, false);
             context.drawText(textRenderer, this.playerInventoryTitle, this.playerInventoryTitleX, this.playerInventoryTitleY, 0x404040, false);
 
-            if (handler.controller != null) {
-                int free = handler.controller.calculateTotalFreeSlots();
-                int total = handler.controller.calculateTotalCapacity();
+            int free = handler.getFreeSlots();
+            int total = handler.getTotalCapacity();
 
-                if (total > 0) {
-                    float percentFree = (free / (float) total) * 100;
+            if (total > 0) {
+                float percentFree = (free / (float) total) * 100;
 
-                    int color;
-                    if (percentFree > 50) color = 0x55FF55;
-                    else if (percentFree > 25) color = 0xFFFF55;
-                    else if (percentFree > 10) color = 0xFFAA00;
-                    else color = 0xFF5555;
+                int color;
+                if (percentFree > 50) color = 0x55FF55;
+                else if (percentFree > 25) color = 0xFFFF55;
+                else if (percentFree > 10) color = 0xFFAA00;
+                else color = 0xFF5555;
 
-                    String capacityText = free + "/" + total;
-                    int textWidth = textRenderer.getWidth(capacityText);
-                    int textX = backgroundWidth - textWidth - 26;
-                    int textY = 6;
+                String capacityText = free + "/" + total;
+                int textWidth = textRenderer.getWidth(capacityText);
+                int textX = backgroundWidth - textWidth - 26;
+                int textY = 6;
 
-                    context.drawText(textRenderer, Text.literal(capacityText), textX, textY, 0xFF000000 | color, false);
-                }
+                context.drawText(textRenderer, Text.literal(capacityText), textX, textY, 0xFF000000 | color, false);
             }
         } else {
             // AUTO_PROCESSING tab - only draw player inventory title
@@ -1098,7 +1137,7 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
 
         int scrollOffset = (int) (scrollProgress * maxScrollRows);
         int startIndex = scrollOffset * ITEMS_PER_ROW;
-        int endIndex = Math.min(startIndex + ITEMS_PER_PAGE, networkItemsList.size());
+        int endIndex = Math.min(startIndex + ITEMS_PER_PAGE, getDisplayedCount());
 
         for (int i = startIndex; i < endIndex; i++) {
             int relativeIndex = i - startIndex;
@@ -1109,7 +1148,8 @@ public class StorageControllerScreen extends HandledScreen<StorageControllerScre
             int slotY = guiY + GRID_START_Y + (row * SLOT_SIZE);
 
             if (isMouseOverSlot(slotX, slotY, mouseX, mouseY)) {
-                var entry = networkItemsList.get(i);
+                var entry = getDisplayedEntry(i);
+                if (entry == null) break;
                 ItemVariant variant = entry.getKey();
                 long amount = entry.getValue();
 
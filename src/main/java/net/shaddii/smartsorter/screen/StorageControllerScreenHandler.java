@@ -25,14 +25,31 @@ import net.shaddii.smartsorter.util.ProcessProbeConfig;
 import net.shaddii.smartsorter.util.SortMode;
 import net.shaddii.smartsorter.blockentity.StorageControllerBlockEntity;
 import net.shaddii.smartsorter.network.StorageControllerSyncPacket;
+import net.shaddii.smartsorter.network.VariantPalette;
+import net.shaddii.smartsorter.network.ViewWindowPayload;
+import net.shaddii.smartsorter.SmartSorterConfig;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * OPTIMIZATIONS:
  * - Removed virtual slots completely
  * - Server sends raw data, client handles all filtering/sorting
+ * - Items are synced as one snapshot, then sequenced deltas of the variants
+ *   the controller reported as changed (see StorageControllerSyncPacket)
+ * - Variants go over the wire as ids from this session's VariantPalette
+ * - Huge networks (SmartSorterConfig.viewWindowThreshold) switch to a
+ *   server-side view: the server filters and sorts from the controller's
+ *   pre-sorted index and only sends the page the client shows
+ * - Changes only mark the viewer dirty; ViewerSyncQueue sends at most one
+ *   update per tick
  */
 public class StorageControllerScreenHandler extends ScreenHandler {
     public final StorageControllerBlockEntity controller;
@@ -54,19 +71,77 @@ public class StorageControllerScreenHandler extends ScreenHandler {
     // XP Tracking
     private int clientStoredXp = 0;
 
+    // Capacity counters from the last sync
+    private int clientFreeSlots = 0;
+    private int clientTotalSlots = 0;
+
+    // Server: the player viewing this screen, and whether an update is queued for this tick
+    private final ServerPlayerEntity viewer;
+    private boolean syncQueued = false;
+
+    // Server: needsSnapshot -> next update is a full snapshot, otherwise only the
+    // variants the controller reported as changed since the last packet
+    private boolean needsSnapshot = true;
+    private final Set<ItemVariant> changedVariants = new HashSet<>();
+    private int syncSequence = 0;
+    private int sentXp = -1;
+    private int sentFreeSlots = -1;
+    private int sentTotalSlots = -1;
+    private int sentConfigVersion = -1;
+    private ItemStack sentCursor = ItemStack.EMPTY;
+
+    // Variant ids for this screen session (server assigns, client mirrors)
+    private final VariantPalette palette = new VariantPalette();
+
+    // Windowed view - decided by the server with the first snapshot, learned by the client
+    private static final int DEFAULT_WINDOW_LENGTH = 45;
+    private static final int MAX_WINDOW_LENGTH = 9 * 16;
+    private boolean windowed = false;
+    private boolean viewModeDecided = false;
+
+    // Server: the client's view and what it was last sent
+    private String search = "";
+    private int windowOffset = 0;
+    private int windowLength = DEFAULT_WINDOW_LENGTH;
+    private List<ItemVariant> matches = null;
+    private long matchesVersion = -1;
+    private long matchesKeyVersion = -1;
+    // COUNT order: variants whose count changed since matches was last brought up to date
+    private final Set<ItemVariant> reorderedVariants = new HashSet<>();
+    private static final int MAX_INCREMENTAL_REORDER = 64;
+    private List<Map.Entry<ItemVariant, Long>> sentWindow = null;
+    private int sentWindowTotal = -1;
+    private int sentWindowOffset = -1;
+
+    // Client: the last page received and the last view requested
+    private List<Map.Entry<ItemVariant, Long>> clientWindowItems = new ArrayList<>();
+    private int clientWindowTotal = 0;
+    private int clientWindowOffset = 0;
+    private ViewWindowPayload lastWindowRequest = null;
+
+    // Client: sequence of the last applied packet (-1 = no snapshot yet)
+    private int clientSequence = -1;
+    private boolean awaitingSnapshot = false;
+
     public StorageControllerScreenHandler(int syncId, PlayerInventory inv, StorageControllerBlockEntity controller) {
         super(SmartSorter.STORAGE_CONTROLLER_SCREEN_HANDLER, syncId);
         this.controller = controller;
+        this.viewer = inv.player instanceof ServerPlayerEntity sp ? sp : null;
 
         addPlayerInventory(inv);
         addPlayerHotbar(inv);
 
-        if (inv.player instanceof ServerPlayerEntity sp) sendNetworkUpdate(sp);
+        // Join the controller's viewer registry (left again in onClosed)
+        if (viewer != null && controller != null) controller.addViewer(this);
+
+        // No sync from here - it would reach the client before the screen opens.
+        // The screen requests its snapshot on init.
     }
 
     public StorageControllerScreenHandler(int syncId, PlayerInventory inv) {
         super(SmartSorter.STORAGE_CONTROLLER_SCREEN_HANDLER, syncId);
         this.controller = null;
+        this.viewer = null;
 
         addPlayerInventory(inv);
         addPlayerHotbar(inv);
@@ -83,6 +158,25 @@ public class StorageControllerScreenHandler extends ScreenHandler {
         return clientStoredXp;
     }
 
+    public void updateCapacity(int freeSlots, int totalSlots) {
+        this.clientFreeSlots = freeSlots;
+        this.clientTotalSlots = totalSlots;
+    }
+
+    public int getFreeSlots() {
+        if (controller != null) {
+            return controller.getFreeSlots();
+        }
+        return clientFreeSlots;
+    }
+
+    public int getTotalCapacity() {
+        if (controller != null) {
+            return controller.getTotalCapacity();
+        }
+        return clientTotalSlots;
+    }
+
     private void sendProbeConfigsInBatches(ServerPlayerEntity player, Map<BlockPos, ProcessProbeConfig> configs) {
         Map<BlockPos, ProcessProbeConfig> batch = new HashMap<>();
         int count = 0;
@@ -108,26 +202,306 @@ public class StorageControllerScreenHandler extends ScreenHandler {
     }
 
 
-    public void sendNetworkUpdate(ServerPlayerEntity player) {
-        if (controller != null) {
-            controller.updateNetworkCache();
-            Map<ItemVariant, Long> items = controller.getNetworkItems();
-            int xp = controller.getStoredExperience();
-            Map<BlockPos, ProcessProbeConfig> configs = controller.getProcessProbeConfigs();
+    /**
+     * Server: queue an update for this viewer at the end of the tick.
+     * Any number of calls in one tick send (at most) one packet set.
+     */
+    public void markSyncDirty() {
+        if (controller == null || viewer == null || syncQueued) return;
+        syncQueued = true;
+        ViewerSyncQueue.queue(this);
+    }
+
+    @Nullable
+    public ServerPlayerEntity getViewer() {
+        return viewer;
+    }
+
+    /**
+     * OPTIMIZATION: Sends a full snapshot only if this viewer has none yet,
+     * otherwise just what changed since the last packet (nothing if nothing did).
+     * Run by ViewerSyncQueue at the end of the tick.
+     */
+    void flushNetworkUpdate(ServerPlayerEntity player) {
+        syncQueued = false;
+        if (controller == null) return;
+
+        Map<ItemVariant, Long> items = controller.getNetworkItemsView();
+        int xp = controller.getStoredExperience();
+        int freeSlots = controller.getFreeSlots();
+        int totalSlots = controller.getTotalCapacity();
+        int configVersion = controller.getProbeConfigVersion();
+        boolean configsChanged = configVersion != sentConfigVersion;
+
+        if (!viewModeDecided) {
+            int threshold = SmartSorterConfig.viewWindowThreshold;
+            windowed = threshold > 0 && items.size() > threshold;
+            viewModeDecided = true;
+        }
+
+        boolean stateChanged = true;
+        if (needsSnapshot) {
+            // Windowed viewers get their items through WindowPayload only
+            Map<ItemVariant, Long> snapshot = windowed ? Map.of() : items;
+            needsSnapshot = false;
+            changedVariants.clear();
+            sentWindow = null;
+
+            // Items and XP first with EMPTY configs to clear client state
+            StorageControllerSyncPacket.send(player, ++syncSequence, palette.encode(snapshot), xp, new HashMap<>(),
+                    freeSlots, totalSlots);
+            configsChanged = true;
+        } else {
+            Map<ItemVariant, Long> changes = windowed ? Map.of() : collectChanges(items);
+            stateChanged = !changes.isEmpty() || configsChanged
+                    || xp != sentXp || freeSlots != sentFreeSlots || totalSlots != sentTotalSlots
+                    || !ItemStack.areEqual(getCursorStack(), sentCursor);
+
+            if (stateChanged) {
+                StorageControllerSyncPacket.sendDelta(player, ++syncSequence, palette.encode(changes), xp,
+                        configsChanged, freeSlots, totalSlots);
+            }
+        }
 
-            // Always send items and XP first with EMPTY configs to clear client state
-            StorageControllerSyncPacket.send(player, items, xp, new HashMap<>());
+        if (stateChanged) {
+            sentXp = xp;
+            sentFreeSlots = freeSlots;
+            sentTotalSlots = totalSlots;
+            sentCursor = getCursorStack().copy();
+        }
+
+        if (windowed) sendWindowIfChanged(player, items);
 
-            // Then send all configs in batches (even if less than 10)
+        // Then send all configs in batches, only when they changed
+        if (configsChanged) {
+            sentConfigVersion = configVersion;
+            Map<BlockPos, ProcessProbeConfig> configs = controller.getProcessProbeConfigs();
             if (!configs.isEmpty()) {
                 sendProbeConfigsInBatches(player, configs);
             }
         }
     }
 
+    /**
+     * Server: send the client's current page if it differs from what it has
+     */
+    private void sendWindowIfChanged(ServerPlayerEntity player, Map<ItemVariant, Long> items) {
+        List<ItemVariant> found = getMatches();
+        int total = found.size();
+        int offset = Math.min(windowOffset, total);
+        int end = Math.min(total, offset + windowLength);
+
+        List<Map.Entry<ItemVariant, Long>> window = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            ItemVariant variant = found.get(i);
+            window.add(Map.entry(variant, items.getOrDefault(variant, 0L)));
+        }
+
+        if (total == sentWindowTotal && offset == sentWindowOffset && window.equals(sentWindow)) return;
+
+        // Insertion-ordered so the page keeps its sort order on the wire
+        Map<ItemVariant, Long> page = new LinkedHashMap<>();
+        for (Map.Entry<ItemVariant, Long> entry : window) {
+            page.put(entry.getKey(), entry.getValue());
+        }
+        StorageControllerSyncPacket.sendWindow(player, total, offset, palette.encode(page));
+
+        sentWindow = window;
+        sentWindowTotal = total;
+        sentWindowOffset = offset;
+    }
+
+    /**
+     * Server: variants matching the client's category and search, in its sort order.
+     * Walks the controller's shared pre-sorted index; cached until the view or that order changes.
+     * OPTIMIZATION: When only counts changed, the changed matches are moved to
+     * their new place instead of re-filtering the whole index.
+     */
+    private List<ItemVariant> getMatches() {
+        long version = controller.getSortVersion(sortMode);
+        if (matches != null && matchesVersion == version) return matches;
+
+        long keyVersion = controller.getSortVersion(SortMode.NAME);
+        if (matches != null && sortMode == SortMode.COUNT && matchesKeyVersion == keyVersion
+                && reorderedVariants.size() <= MAX_INCREMENTAL_REORDER) {
+            // Same variants as before, so membership is unchanged - take the
+            // moved ones out first, then the rest is in order for the re-inserts
+            List<ItemVariant> moved = new ArrayList<>(reorderedVariants.size());
+            for (ItemVariant variant : reorderedVariants) {
+                if (matches.remove(variant)) moved.add(variant);
+            }
+            for (ItemVariant variant : moved) {
+                controller.insertByCount(matches, variant);
+            }
+            reorderedVariants.clear();
+            matchesVersion = version;
+            return matches;
+        }
+
+        reorderedVariants.clear();
+        List<ItemVariant> found = new ArrayList<>();
+        for (ItemVariant variant : controller.getSortedVariants(sortMode)) {
+            if (filterCategory != Category.ALL
+                    && !CategoryManager.getInstance().categorize(variant.getItem()).equals(filterCategory)) {
+                continue;
+            }
+            if (!search.isEmpty()
+                    && !controller.getItemName(variant.getItem()).toLowerCase().contains(search)) {
+                continue;
+            }
+            found.add(variant);
+        }
+
+        matches = found;
+        matchesVersion = version;
+        matchesKeyVersion = keyVersion;
+        return found;
+    }
+
+    /**
+     * Server: the windowed client's sort, filter, search and visible range
+     */
+    public void setView(SortMode mode, Category category, String search, int offset, int length) {
+        this.sortMode = mode;
+        this.filterCategory = category;
+        this.search = search.toLowerCase();
+        this.windowOffset = Math.max(0, offset);
+        this.windowLength = Math.max(0, Math.min(MAX_WINDOW_LENGTH, length));
+        this.matches = null;
+    }
 
-    public void updateNetworkItems(Map<ItemVariant, Long> items) {
-        this.clientNetworkItems = items;
+    /**
+     * Server: send this viewer a full snapshot (client opened the screen or lost track)
+     */
+    public void resync() {
+        needsSnapshot = true;
+        changedVariants.clear();
+        markSyncDirty();
+    }
+
+    /**
+     * Server: called by the controller for every count change while this
+     * screen is registered as a viewer
+     */
+    public void onNetworkDelta(ItemVariant variant) {
+        // Windowed viewers re-read their page; only their count-sorted matches need the variant
+        if (windowed) {
+            if (matches != null && sortMode == SortMode.COUNT) reorderedVariants.add(variant);
+            return;
+        }
+        // A pending snapshot covers it
+        if (!needsSnapshot) changedVariants.add(variant);
+    }
+
+    /**
+     * OPTIMIZATION: Current counts of just the variants reported since the last
+     * packet - no diff of the whole network. Removed variants are reported with a count of 0.
+     */
+    private Map<ItemVariant, Long> collectChanges(Map<ItemVariant, Long> items) {
+        if (changedVariants.isEmpty()) return Map.of();
+
+        Map<ItemVariant, Long> changes = new HashMap<>(Math.max(16, changedVariants.size() * 4 / 3 + 1));
+        for (ItemVariant variant : changedVariants) {
+            changes.put(variant, items.getOrDefault(variant, 0L));
+        }
+        changedVariants.clear();
+        return changes;
+    }
+
+    /**
+     * Client: replace the item list with a full snapshot
+     */
+    public void applySnapshot(int sequence, VariantPalette.Entries items) {
+        palette.define(items);
+        this.clientNetworkItems = palette.decode(items);
+        this.clientSequence = sequence;
+        this.awaitingSnapshot = false;
+    }
+
+    /**
+     * Client: apply a delta on top of the last packet. On a sequence gap the
+     * delta is dropped and a snapshot requested (once).
+     *
+     * @return whether the delta was applied
+     */
+    public boolean applyDelta(int sequence, VariantPalette.Entries changes) {
+        // Ids defined here are used by later packets, even if this one is dropped
+        palette.define(changes);
+        if (awaitingSnapshot) return false;
+
+        if (clientSequence < 0 || sequence != clientSequence + 1) {
+            requestSync();
+            return false;
+        }
+
+        for (int i = 0; i < changes.size(); i++) {
+            ItemVariant variant = palette.get(changes.variantIds()[i]);
+            if (variant == null) continue;
+
+            long count = changes.counts()[i];
+            if (count <= 0) {
+                clientNetworkItems.remove(variant);
+            } else {
+                clientNetworkItems.put(variant, count);
+            }
+        }
+        clientSequence = sequence;
+        return true;
+    }
+
+    /**
+     * Client: a page of the server-side view
+     */
+    public void applyWindow(int totalMatches, int offset, VariantPalette.Entries entries) {
+        palette.define(entries);
+        windowed = true;
+
+        List<Map.Entry<ItemVariant, Long>> items = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            ItemVariant variant = palette.get(entries.variantIds()[i]);
+            if (variant != null) items.add(Map.entry(variant, entries.counts()[i]));
+        }
+        this.clientWindowItems = items;
+        this.clientWindowTotal = totalMatches;
+        this.clientWindowOffset = offset;
+    }
+
+    /**
+     * Client: tell the server which page is shown (only sends when something changed)
+     */
+    public void requestWindow(String search, int offset, int length) {
+        if (controller != null || !windowed) return;
+
+        ViewWindowPayload request = new ViewWindowPayload(
+                sortMode.asString(), filterCategory.asString(), search, offset, length);
+        if (request.equals(lastWindowRequest)) return;
+
+        lastWindowRequest = request;
+        ClientPlayNetworking.send(request);
+    }
+
+    public boolean isWindowed() {
+        return windowed;
+    }
+
+    public List<Map.Entry<ItemVariant, Long>> getWindowItems() {
+        return clientWindowItems;
+    }
+
+    public int getWindowTotal() {
+        return clientWindowTotal;
+    }
+
+    public int getWindowOffset() {
+        return clientWindowOffset;
+    }
+
+    /**
+     * Server: the variant a client request refers to (null for an unknown id)
+     */
+    @Nullable
+    public ItemVariant resolveVariant(VariantPalette.Ref ref) {
+        return ref.resolve(palette);
     }
 
     public Map<ItemVariant, Long> getNetworkItems() {
@@ -135,16 +509,19 @@ public class StorageControllerScreenHandler extends ScreenHandler {
         return new HashMap<>(clientNetworkItems);
     }
 
+    /**
+     * Client: ask for a full snapshot; deltas are ignored until it arrives
+     */
     public void requestSync() {
-        if (controller == null) ClientPlayNetworking.send(new SyncRequestPayload());
+        if (controller != null) return;
+        awaitingSnapshot = true;
+        ClientPlayNetworking.send(new SyncRequestPayload());
     }
 
     public void setSortMode(SortMode mode) {
         this.sortMode = mode;
-        PlayerEntity player = getPlayerFromSlots();
-        if (player instanceof ServerPlayerEntity sp) {
-            sendNetworkUpdate(sp);
-        }
+        this.matches = null;
+        markSyncDirty();
     }
 
     public SortMode getSortMode() {
@@ -153,10 +530,8 @@ public class StorageControllerScreenHandler extends ScreenHandler {
 
     public void setFilterCategory(Category category) {
         this.filterCategory = category;
-        PlayerEntity player = getPlayerFromSlots();
-        if (player instanceof ServerPlayerEntity sp) {
-            sendNetworkUpdate(sp);
-        }
+        this.matches = null;
+        markSyncDirty();
     }
 
     public Category getFilterCategory() {
@@ -167,11 +542,8 @@ public class StorageControllerScreenHandler extends ScreenHandler {
         if (controller != null) {
             PlayerEntity player = getPlayerFromSlots();
             if (player != null) extractItem(variant, amount, toInventory, player);
-            if (player instanceof ServerPlayerEntity sp) {
-                sendNetworkUpdate(sp);
-            }
         } else {
-            ClientPlayNetworking.send(new ExtractionRequestPayload(variant, amount, toInventory));
+            ClientPlayNetworking.send(new ExtractionRequestPayload(VariantPalette.Ref.of(palette, variant), amount, toInventory));
         }
     }
 
@@ -179,11 +551,8 @@ public class StorageControllerScreenHandler extends ScreenHandler {
         if (controller != null) {
             PlayerEntity player = getPlayerFromSlots();
             if (player != null) depositItem(stack, amount, player);
-            if (player instanceof ServerPlayerEntity sp) {
-                sendNetworkUpdate(sp);
-            }
         } else {
-            ClientPlayNetworking.send(new DepositRequestPayload(ItemVariant.of(stack), amount));
+            ClientPlayNetworking.send(new DepositRequestPayload(VariantPalette.Ref.of(palette, ItemVariant.of(stack)), amount));
         }
     }
 
@@ -211,8 +580,8 @@ public class StorageControllerScreenHandler extends ScreenHandler {
                 setCursorStack(cursor);
             }
 
-            if (player instanceof ServerPlayerEntity sp) {
-                sendNetworkUpdate(sp);
+            markSyncDirty();
+            if (player instanceof ServerPlayerEntity) {
                 // Sync cursor immediately
                 player.playerScreenHandler.setCursorStack(getCursorStack());
             }
@@ -264,8 +633,8 @@ public class StorageControllerScreenHandler extends ScreenHandler {
             }
         }
 
-        if (player instanceof ServerPlayerEntity sp) {
-            sendNetworkUpdate(sp);
+        markSyncDirty();
+        if (player instanceof ServerPlayerEntity) {
             // Sync cursor immediately
             player.playerScreenHandler.setCursorStack(getCursorStack());
         }
@@ -345,9 +714,7 @@ public class StorageControllerScreenHandler extends ScreenHandler {
                 slot.setStack(remaining);
                 slot.markDirty();
 
-                if (player instanceof ServerPlayerEntity sp) {
-                    sendNetworkUpdate(sp);
-                }
+                markSyncDirty();
 
                 // Return original to signal success
                 return original;
@@ -362,16 +729,18 @@ public class StorageControllerScreenHandler extends ScreenHandler {
         if (index < 0 || index >= this.slots.size()) {
             // Handle clicks outside slot bounds
             super.onSlotClick(index, button, type, player);
-            if (controller != null && player instanceof ServerPlayerEntity sp) {
-                sendNetworkUpdate(sp);
-            }
+            markSyncDirty();
             return;
         }
 
         super.onSlotClick(index, button, type, player);
-        if (controller != null && player instanceof ServerPlayerEntity sp) {
-            sendNetworkUpdate(sp);
-        }
+        markSyncDirty();
+    }
+
+    @Override
+    public void onClosed(PlayerEntity player) {
+        super.onClosed(player);
+        if (controller != null) controller.removeViewer(this);
     }
 
     @Override
@@ -403,26 +772,26 @@ public class StorageControllerScreenHandler extends ScreenHandler {
         @Override public Id<? extends CustomPayload> getId() { return ID; }
     }
 
-    public record DepositRequestPayload(ItemVariant variant, int amount) implements CustomPayload {
+    public record DepositRequestPayload(VariantPalette.Ref variant, int amount) implements CustomPayload {
         public static final Id<DepositRequestPayload> ID =
                 new Id<>(Identifier.of(SmartSorter.MOD_ID, "deposit_request"));
         public static final PacketCodec<RegistryByteBuf, DepositRequestPayload> CODEC =
                 PacketCodec.of((value, buf) -> write(buf, value), buf -> read(buf));
 
         public static void write(RegistryByteBuf buf, DepositRequestPayload payload) {
-            ItemStack.PACKET_CODEC.encode(buf, payload.variant().toStack(1));
+            payload.variant().write(buf);
             buf.writeVarInt(payload.amount());
         }
 
         public static DepositRequestPayload read(RegistryByteBuf buf) {
-            ItemStack s = ItemStack.PACKET_CODEC.decode(buf);
-            return new DepositRequestPayload(ItemVariant.of(s), buf.readVarInt());
+            VariantPalette.Ref v = VariantPalette.Ref.read(buf);
+            return new DepositRequestPayload(v, buf.readVarInt());
         }
 
         @Override public Id<? extends CustomPayload> getId() { return ID; }
     }
 
-    public record ExtractionRequestPayload(ItemVariant variant, int amount, boolean toInventory)
+    public record ExtractionRequestPayload(VariantPalette.Ref variant, int amount, boolean toInventory)
             implements CustomPayload {
         public static final Id<ExtractionRequestPayload> ID =
                 new Id<>(Identifier.of(SmartSorter.MOD_ID, "extraction_request"));
@@ -430,14 +799,13 @@ public class StorageControllerScreenHandler extends ScreenHandler {
                 PacketCodec.of((value, buf) -> write(buf, value), buf -> read(buf));
 
         public static void write(RegistryByteBuf buf, ExtractionRequestPayload payload) {
-            ItemStack.PACKET_CODEC.encode(buf, payload.variant().toStack(1));
+            payload.variant().write(buf);
             buf.writeVarInt(payload.amount());
             buf.writeBoolean(payload.toInventory());
         }
 
         public static ExtractionRequestPayload read(RegistryByteBuf buf) {
-            ItemStack s = ItemStack.PACKET_CODEC.decode(buf);
-            ItemVariant v = ItemVariant.of(s);
+            VariantPalette.Ref v = VariantPalette.Ref.read(buf);
             int amt = buf.readVarInt();
             boolean inv = buf.readBoolean();
             return new ExtractionRequestPayload(v, amt, inv);
@@ -0,0 +1,45 @@
+package net.shaddii.smartsorter.screen;
+
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Coalesces controller screen syncs to at most one per viewer per tick.
+ *
+ * OPTIMIZATION: Clicks, packets and controller changes only mark a viewer
+ * dirty; at the end of the server tick each dirty viewer gets one update.
+ * The controller's cache is already current (probes push their index deltas).
+ */
+public final class ViewerSyncQueue {
+    private ViewerSyncQueue() {}
+
+    private static final Set<StorageControllerScreenHandler> PENDING = new LinkedHashSet<>();
+
+    public static void register() {
+        ServerTickEvents.END_SERVER_TICK.register(server -> flush());
+    }
+
+    static void queue(StorageControllerScreenHandler handler) {
+        PENDING.add(handler);
+    }
+
+    private static void flush() {
+        if (PENDING.isEmpty()) return;
+
+        List<StorageControllerScreenHandler> handlers = new ArrayList<>(PENDING);
+        PENDING.clear();
+
+        for (StorageControllerScreenHandler handler : handlers) {
+            ServerPlayerEntity player = handler.getViewer();
+            // Closed since it was marked
+            if (player == null || player.currentScreenHandler != handler) continue;
+
+            handler.flushNetworkUpdate(player);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package net.shaddii.smartsorter.util;
+
+import net.minecraft.util.StringIdentifiable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * How inserts are spread across outputs of the same rank (PRIORITY and
+ * ACCEPT_ALL probes). FILTER probes are always tried in link order.
+ */
+public enum DistributionMode implements StringIdentifiable {
+    FIRST_FIT("first_fit"),
+    ROUND_ROBIN("round_robin"),
+    LEAST_FULL("least_full");
+
+    private final String name;
+
+    DistributionMode(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String asString() {
+        return name;
+    }
+
+    public static DistributionMode fromString(String name) {
+        for (DistributionMode mode : values()) {
+            if (mode.name.equals(name)) {
+                return mode;
+            }
+        }
+        return FIRST_FIT; // default
+    }
+
+    /**
+     * Returns the next distribution mode in the cycle.
+     */
+    public DistributionMode next() {
+        return values()[(this.ordinal() + 1) % values().length];
+    }
+
+    public String getDisplayName() {
+        return switch (this) {
+            case FIRST_FIT -> "First Fit";
+            case ROUND_ROBIN -> "Round Robin";
+            case LEAST_FULL -> "Least Full";
+        };
+    }
+
+    /**
+     * Order a group of equally-ranked outputs for one insert.
+     *
+     * @param group    outputs in link order (not modified)
+     * @param rotation round-robin start offset, advanced by the caller
+     * @param fill     fill level in [0, 1] from maintained counters (no scanning)
+     * @param out      receives the ordered outputs
+     */
+    public <T> void order(List<T> group, int rotation, ToDoubleFunction<T> fill, List<T> out) {
+        int size = group.size();
+        if (size <= 1 || this == FIRST_FIT) {
+            out.addAll(group);
+            return;
+        }
+
+        switch (this) {
+            case ROUND_ROBIN -> {
+                int start = Math.floorMod(rotation, size);
+                for (int i = 0; i < size; i++) {
+                    out.add(group.get((start + i) % size));
+                }
+            }
+            case LEAST_FULL -> {
+                // Stable sort - equally full outputs keep link order
+                List<T> sorted = new ArrayList<>(group);
+                sorted.sort(Comparator.comparingDouble(fill));
+                out.addAll(sorted);
+            }
+            default -> out.addAll(group);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package net.shaddii.smartsorter.util;
+
+import net.minecraft.util.StringIdentifiable;
+
+/**
+ * Intake throughput tiers: how much one pull may move and how fast the
+ * adaptive cooldown is allowed to run.
+ *
+ * The cooldown halves after every successful move (down to minCooldown)
+ * and doubles while idle (up to maxCooldown).
+ */
+public enum IntakeThroughput implements StringIdentifiable {
+    STANDARD("standard", 2, 1, 2, 10),
+    STACK("stack", 64, 1, 1, 20),
+    BULK("bulk", 64, 4, 1, 20);
+
+    private final String name;
+    private final int itemsPerStack;
+    private final int stacksPerOp;
+    private final int minCooldown;
+    private final int maxCooldown;
+
+    IntakeThroughput(String name, int itemsPerStack, int stacksPerOp, int minCooldown, int maxCooldown) {
+        this.name = name;
+        this.itemsPerStack = itemsPerStack;
+        this.stacksPerOp = stacksPerOp;
+        this.minCooldown = minCooldown;
+        this.maxCooldown = maxCooldown;
+    }
+
+    @Override
+    public String asString() {
+        return name;
+    }
+
+    public static IntakeThroughput fromString(String name) {
+        for (IntakeThroughput tier : values()) {
+            if (tier.name.equals(name)) {
+                return tier;
+            }
+        }
+        return STANDARD; // default
+    }
+
+    /**
+     * Max items taken from one source stack per pull (capped by the item's max stack size).
+     */
+    public int getItemsPerStack() {
+        return itemsPerStack;
+    }
+
+    /**
+     * Max distinct stacks moved per pull.
+     */
+    public int getStacksPerOp() {
+        return stacksPerOp;
+    }
+
+    public int getMinCooldown() {
+        return minCooldown;
+    }
+
+    public int getMaxCooldown() {
+        return maxCooldown;
+    }
+
+    /**
+     * Returns the next tier in the cycle.
+     */
+    public IntakeThroughput next() {
+        return values()[(this.ordinal() + 1) % values().length];
+    }
+
+    /**
+     * The lower of two tiers (used to apply the server cap).
+     */
+    public IntakeThroughput min(IntakeThroughput other) {
+        return this.ordinal() <= other.ordinal() ? this : other;
+    }
+
+    public String getDisplayName() {
+        return switch (this) {
+            case STANDARD -> "Standard";
+            case STACK -> "Stack";
+            case BULK -> "Bulk";
+        };
+    }
+}
@@ -0,0 +1,336 @@
+package net.shaddii.smartsorter.util;
+
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.fabricmc.fabric.api.transfer.v1.storage.Storage;
+import net.fabricmc.fabric.api.transfer.v1.storage.StorageView;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Live index of a single inventory's contents.
+ *
+ * Keeps a per-slot snapshot (stack reference + count + variant) so changes
+ * can be detected with cheap compares, and a variant -> count total that
+ * is adjusted by deltas instead of being rebuilt from scratch.
+ * Also tracks which slots hold each variant, which slots are empty and
+ * which hold non-full stacks, so extraction and insertion can go straight
+ * to the right slots.
+ *
+ * Every change is also recorded as a pending delta; owners drain those and
+ * forward them (e.g. to a Storage Controller's network cache).
+ */
+public class InventoryIndex {
+    private static final ItemStack[] NO_STACKS = new ItemStack[0];
+    private static final int[] NO_COUNTS = new int[0];
+    private static final ItemVariant[] NO_VARIANTS = new ItemVariant[0];
+
+    // Per-slot snapshot
+    private ItemStack[] stacks = NO_STACKS;
+    private int[] counts = NO_COUNTS;
+    private ItemVariant[] variants = NO_VARIANTS;
+
+    // Aggregated contents
+    private final Map<ItemVariant, Long> totals = new HashMap<>();
+    // Same totals keyed by Item only (component-insensitive lookups)
+    private final Map<Item, Long> itemTotals = new HashMap<>();
+    // Bumped whenever an Item appears or disappears (not on count changes)
+    private int itemSetVersion = 0;
+
+    // Variant -> slots currently holding it
+    private final Map<ItemVariant, BitSet> slotsByVariant = new HashMap<>();
+
+    // Insertion targets: empty slots + variant -> slots with room left
+    private final BitSet emptySlots = new BitSet();
+    private final Map<ItemVariant, BitSet> partialSlots = new HashMap<>();
+
+    // Maintained slot usage (capacity is the snapshot size)
+    private int usedSlots = 0;
+    private boolean slotUsageChanged = false;
+
+    // Changes not yet handed to the owner
+    private Map<ItemVariant, Long> pendingChanges = new HashMap<>();
+
+    // Rolling verification position
+    private int verifyCursor = 0;
+
+    /**
+     * Number of slots covered by the index (0 for storage-only targets).
+     */
+    public int size() {
+        return stacks.length;
+    }
+
+    public int getUsedSlots() {
+        return usedSlots;
+    }
+
+    public int getFreeSlots() {
+        return stacks.length - usedSlots;
+    }
+
+    public Map<ItemVariant, Long> getTotals() {
+        return Collections.unmodifiableMap(totals);
+    }
+
+    public long getCount(ItemVariant variant) {
+        return totals.getOrDefault(variant, 0L);
+    }
+
+    public boolean containsVariant(ItemVariant variant) {
+        return totals.containsKey(variant);
+    }
+
+    public boolean containsItem(Item item) {
+        return itemTotals.containsKey(item);
+    }
+
+    /**
+     * Distinct items present. Live view - don't modify.
+     */
+    public Set<Item> getItems() {
+        return Collections.unmodifiableSet(itemTotals.keySet());
+    }
+
+    public int getItemSetVersion() {
+        return itemSetVersion;
+    }
+
+    /**
+     * Slots holding this variant, or null if none. Live view - don't modify.
+     * Refreshing a slot while iterating only touches that slot's bit, so
+     * walking with nextSetBit(i + 1) stays valid.
+     */
+    public BitSet getSlots(ItemVariant variant) {
+        return slotsByVariant.get(variant);
+    }
+
+    /**
+     * Slots holding a non-full stack of this variant, or null if none.
+     * Same live-view rules as {@link #getSlots}.
+     */
+    public BitSet getPartialSlots(ItemVariant variant) {
+        return partialSlots.get(variant);
+    }
+
+    /**
+     * Empty slots. Live view - don't modify.
+     */
+    public BitSet getEmptySlots() {
+        return emptySlots;
+    }
+
+    /**
+     * Whether the snapshot has room for at least one more of this variant.
+     */
+    public boolean hasSpaceFor(ItemVariant variant) {
+        return !emptySlots.isEmpty() || partialSlots.containsKey(variant);
+    }
+
+    // ===================================================================
+    // UPDATES
+    // ===================================================================
+
+    /**
+     * Full rescan of an inventory. Only slots that differ from the snapshot
+     * produce deltas, so rescanning an unchanged inventory is cheap.
+     */
+    public void rebuild(Inventory inv) {
+        int size = inv.size();
+        if (size != stacks.length) {
+            clear();
+            stacks = new ItemStack[size];
+            counts = new int[size];
+            variants = new ItemVariant[size];
+            verifyCursor = 0;
+            slotUsageChanged = true;
+        }
+
+        for (int i = 0; i < size; i++) {
+            refreshSlot(inv, i);
+        }
+    }
+
+    /**
+     * Totals-only rebuild for targets that only expose a Storage (no slots).
+     */
+    public void rebuildFromStorage(Storage<ItemVariant> storage) {
+        if (stacks.length > 0) {
+            clear();
+        }
+
+        Map<ItemVariant, Long> scanned = new HashMap<>();
+        for (StorageView<ItemVariant> view : storage) {
+            if (view.isResourceBlank() || view.getAmount() == 0) continue;
+            scanned.merge(view.getResource(), view.getAmount(), Long::sum);
+        }
+
+        for (Map.Entry<ItemVariant, Long> entry : new HashMap<>(totals).entrySet()) {
+            long now = scanned.getOrDefault(entry.getKey(), 0L);
+            if (now != entry.getValue()) {
+                adjust(entry.getKey(), now - entry.getValue());
+            }
+        }
+        for (Map.Entry<ItemVariant, Long> entry : scanned.entrySet()) {
+            if (!totals.containsKey(entry.getKey())) {
+                adjust(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Re-read one slot and apply the difference to the totals.
+     * Call after any direct modification of the slot.
+     */
+    public void refreshSlot(Inventory inv, int slot) {
+        if (slot < 0 || slot >= stacks.length) return;
+
+        ItemStack stack = inv.getStack(slot);
+        int count = stack.isEmpty() ? 0 : stack.getCount();
+
+        ItemVariant oldVariant = variants[slot];
+        int oldCount = counts[slot];
+
+        // Same instance can still have had its components edited in place
+        boolean sameVariant = stack == stacks[slot]
+                && (oldVariant == null ? count == 0 : count > 0 && oldVariant.matches(stack));
+        if (sameVariant && count == oldCount) {
+            return;
+        }
+
+        ItemVariant newVariant;
+        if (count == 0) {
+            newVariant = null;
+        } else if (sameVariant) {
+            // Same stack instance and components, only the count moved
+            newVariant = oldVariant;
+        } else {
+            newVariant = ItemVariant.of(stack);
+        }
+
+        if ((oldVariant == null) != (newVariant == null)) {
+            usedSlots += newVariant != null ? 1 : -1;
+            slotUsageChanged = true;
+        }
+
+        if (oldVariant != null && oldCount > 0) {
+            adjust(oldVariant, -oldCount);
+            if (!oldVariant.equals(newVariant)) {
+                clearBit(slotsByVariant, oldVariant, slot);
+            }
+            clearBit(partialSlots, oldVariant, slot);
+        }
+        if (newVariant != null) {
+            adjust(newVariant, count);
+            slotsByVariant.computeIfAbsent(newVariant, v -> new BitSet(stacks.length)).set(slot);
+
+            if (count < Math.min(stack.getMaxCount(), inv.getMaxCountPerStack())) {
+                partialSlots.computeIfAbsent(newVariant, v -> new BitSet(stacks.length)).set(slot);
+            }
+            emptySlots.clear(slot);
+        } else {
+            emptySlots.set(slot);
+        }
+
+        stacks[slot] = stack;
+        counts[slot] = count;
+        variants[slot] = newVariant;
+    }
+
+    /**
+     * Check up to {@code maxSlots} slots against the snapshot, continuing
+     * where the previous call stopped. Picks up changes made by hoppers,
+     * players or other mods without a full rescan.
+     *
+     * @return false if the inventory changed size and needs a rebuild
+     */
+    public boolean verify(Inventory inv, int maxSlots) {
+        int size = stacks.length;
+        if (inv.size() != size) return false;
+        if (size == 0) return true;
+
+        int toCheck = Math.min(maxSlots, size);
+        for (int n = 0; n < toCheck; n++) {
+            if (verifyCursor >= size) verifyCursor = 0;
+            refreshSlot(inv, verifyCursor++);
+        }
+        return true;
+    }
+
+    /**
+     * Drop all contents (emits negative deltas for everything indexed).
+     */
+    public void clear() {
+        for (Map.Entry<ItemVariant, Long> entry : new HashMap<>(totals).entrySet()) {
+            adjust(entry.getKey(), -entry.getValue());
+        }
+        slotsByVariant.clear();
+        partialSlots.clear();
+        emptySlots.clear();
+        if (stacks.length > 0) slotUsageChanged = true;
+        usedSlots = 0;
+        stacks = NO_STACKS;
+        counts = NO_COUNTS;
+        variants = NO_VARIANTS;
+        verifyCursor = 0;
+    }
+
+    private static void clearBit(Map<ItemVariant, BitSet> map, ItemVariant variant, int slot) {
+        BitSet slots = map.get(variant);
+        if (slots == null) return;
+
+        slots.clear(slot);
+        if (slots.isEmpty()) map.remove(variant);
+    }
+
+    private void adjust(ItemVariant variant, long delta) {
+        if (delta == 0) return;
+
+        long total = totals.getOrDefault(variant, 0L) + delta;
+        if (total <= 0) {
+            totals.remove(variant);
+        } else {
+            totals.put(variant, total);
+        }
+
+        long itemTotal = itemTotals.getOrDefault(variant.getItem(), 0L) + delta;
+        if (itemTotal <= 0) {
+            if (itemTotals.remove(variant.getItem()) != null) itemSetVersion++;
+        } else if (itemTotals.put(variant.getItem(), itemTotal) == null) {
+            itemSetVersion++;
+        }
+
+        long pending = pendingChanges.getOrDefault(variant, 0L) + delta;
+        if (pending == 0) {
+            pendingChanges.remove(variant);
+        } else {
+            pendingChanges.put(variant, pending);
+        }
+    }
+
+    // ===================================================================
+    // CHANGE TRACKING
+    // ===================================================================
+
+    public boolean hasChanges() {
+        return !pendingChanges.isEmpty() || slotUsageChanged;
+    }
+
+    /**
+     * Hand over all deltas recorded since the last drain.
+     * Slot usage changes are reported through {@link #hasChanges()} only;
+     * read the new values from {@link #size()} / {@link #getUsedSlots()}.
+     */
+    public Map<ItemVariant, Long> drainChanges() {
+        slotUsageChanged = false;
+        Map<ItemVariant, Long> drained = pendingChanges;
+        pendingChanges = new HashMap<>();
+        return drained;
+    }
+}
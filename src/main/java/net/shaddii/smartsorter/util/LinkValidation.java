@@ -0,0 +1,74 @@
+package net.shaddii.smartsorter.util;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Helpers for the periodic link safety check.
+ *
+ * Removed blocks unlink themselves right away (onBlockReplaced), so the
+ * periodic check only has to look at links whose chunk was (re)loaded since
+ * the last check - anything could have changed while it was unloaded.
+ * Links into unloaded chunks are kept and never force a chunk load.
+ */
+public final class LinkValidation {
+    private LinkValidation() {}
+
+    /** Ticks between checks of one block's links. */
+    public static final int INTERVAL = 100;
+
+    // Per world: chunk -> tick it was last loaded
+    private static final Map<ServerWorld, Long2LongOpenHashMap> chunkLoadTicks = new IdentityHashMap<>();
+
+    public static void register() {
+        ServerChunkEvents.CHUNK_LOAD.register((world, chunk) ->
+                chunkLoadTicks.computeIfAbsent(world, w -> new Long2LongOpenHashMap())
+                        .put(chunk.getPos().toLong(), world.getTime()));
+
+        ServerChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> {
+            Long2LongOpenHashMap ticks = chunkLoadTicks.get(world);
+            if (ticks != null) ticks.remove(chunk.getPos().toLong());
+        });
+
+        ServerWorldEvents.UNLOAD.register((server, world) -> chunkLoadTicks.remove(world));
+    }
+
+    /**
+     * Tick of the first periodic check after the full check on load,
+     * offset by position so blocks loaded together don't all check together
+     */
+    public static long firstCheck(BlockPos pos, long now) {
+        return now + INTERVAL + Math.floorMod(pos.hashCode(), INTERVAL);
+    }
+
+    /**
+     * Whether a link target can be looked up without loading its chunk
+     */
+    public static boolean isLoaded(World world, BlockPos pos) {
+        return world.isChunkLoaded(ChunkSectionPos.getSectionCoord(pos.getX()), ChunkSectionPos.getSectionCoord(pos.getZ()));
+    }
+
+    /**
+     * Whether a link needs checking: its chunk is loaded and was loaded after
+     * {@code since}. A negative {@code since} (no check yet) checks every loaded link.
+     */
+    public static boolean needsCheck(World world, BlockPos pos, long since) {
+        if (!isLoaded(world, pos)) return false;
+        if (since < 0 || !(world instanceof ServerWorld serverWorld)) return true;
+
+        Long2LongOpenHashMap ticks = chunkLoadTicks.get(serverWorld);
+        if (ticks == null) return true;
+
+        long chunk = ChunkPos.toLong(pos);
+        return !ticks.containsKey(chunk) || ticks.get(chunk) >= since;
+    }
+}
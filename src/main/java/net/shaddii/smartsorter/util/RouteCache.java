@@ -0,0 +1,48 @@
+package net.shaddii.smartsorter.util;
+
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU of ItemVariant -> last destination that took all of it.
+ *
+ * Repeated variants (farm output) are tried against the cached destination
+ * first, skipping the accepts() walk over every output. Owners drop an entry
+ * when its destination fills up and clear everything when any output's
+ * filter changes; tag reloads clear it automatically.
+ */
+public class RouteCache<T> {
+    private static final int CAPACITY = 64;
+
+    private final Map<ItemVariant, T> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ItemVariant, T> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    private int tagGeneration = TagIndex.generation();
+
+    @Nullable
+    public T get(ItemVariant variant) {
+        if (tagGeneration != TagIndex.generation()) {
+            entries.clear();
+            tagGeneration = TagIndex.generation();
+        }
+        return entries.get(variant);
+    }
+
+    public void put(ItemVariant variant, T destination) {
+        entries.put(variant, destination);
+    }
+
+    public void invalidate(ItemVariant variant) {
+        entries.remove(variant);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+}
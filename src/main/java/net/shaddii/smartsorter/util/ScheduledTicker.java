@@ -0,0 +1,16 @@
+package net.shaddii.smartsorter.util;
+
+import net.minecraft.server.world.ServerWorld;
+
+/**
+ * Block entities whose work is run by the world's SmartSorterScheduler
+ * instead of a per-block ticker.
+ */
+public interface ScheduledTicker {
+    /**
+     * Do one unit of work.
+     *
+     * @return ticks until this should run again (at least 1)
+     */
+    int runScheduled(ServerWorld world);
+}
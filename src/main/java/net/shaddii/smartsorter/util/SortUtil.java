@@ -4,14 +4,9 @@ import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
 import net.fabricmc.fabric.api.transfer.v1.storage.Storage;
 import net.fabricmc.fabric.api.transfer.v1.storage.StorageView;
 import net.minecraft.inventory.Inventory;
-import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
-import net.minecraft.registry.Registries;
-import net.minecraft.registry.entry.RegistryEntry;
-import net.minecraft.registry.tag.TagKey;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.BitSet;
 
 public final class SortUtil {
     private SortUtil() {}
@@ -39,47 +34,34 @@ public final class SortUtil {
     }
 
     static boolean acceptsByTags(Storage<ItemVariant> target, ItemVariant incoming, boolean requireAll) {
-        Set<TagKey<Item>> inc = tagsOf(incoming.getItem());
+        BitSet inc = TagIndex.tagsOf(incoming.getItem());
         if (inc.isEmpty()) return false;
 
-        Set<TagKey<Item>> chest = new HashSet<>();
+        BitSet chest = new BitSet();
         for (StorageView<ItemVariant> view : target) {
             if (view.getAmount() == 0) continue;
             ItemVariant present = view.getResource();
             if (present.isBlank()) continue;
-            chest.addAll(tagsOf(present.getItem()));
+            chest.or(TagIndex.tagsOf(present.getItem()));
         }
-        if (chest.isEmpty()) return false;
 
-        return requireAll
-                ? inc.stream().allMatch(chest::contains)
-                : inc.stream().anyMatch(chest::contains);
+        return TagIndex.matches(inc, chest, requireAll);
     }
 
     /**
      * Check tags against a specific inventory (not a Storage)
      */
     public static boolean acceptsByInventoryTags(Inventory inv, ItemVariant incoming, boolean requireAll) {
-        Set<TagKey<Item>> inc = tagsOf(incoming.getItem());
+        BitSet inc = TagIndex.tagsOf(incoming.getItem());
         if (inc.isEmpty()) return false;
 
-        Set<TagKey<Item>> chest = new HashSet<>();
+        BitSet chest = new BitSet();
         for (int i = 0; i < inv.size(); i++) {
             ItemStack stack = inv.getStack(i);
             if (stack.isEmpty()) continue;
-            chest.addAll(tagsOf(stack.getItem()));
+            chest.or(TagIndex.tagsOf(stack.getItem()));
         }
-        if (chest.isEmpty()) return false;
 
-        return requireAll
-                ? inc.stream().allMatch(chest::contains)
-                : inc.stream().anyMatch(chest::contains);
-    }
-
-    static Set<TagKey<Item>> tagsOf(Item item) {
-        RegistryEntry<Item> entry = Registries.ITEM.getEntry(item);
-        Set<TagKey<Item>> out = new HashSet<>();
-        entry.streamTags().forEach(out::add);
-        return out;
+        return TagIndex.matches(inc, chest, requireAll);
     }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package net.shaddii.smartsorter.util;
+
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.minecraft.item.Item;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Network variants pre-sorted for the server-side windowed view, shared by
+ * every viewer of one controller.
+ *
+ * Name order only changes when variants come or go and is re-sorted lazily
+ * on first use after that. Count order is kept current as counts change:
+ * OPTIMIZATION: the changed variant is moved with two binary searches
+ * instead of re-sorting the whole list.
+ * Same orderings as the client-side sort in StorageControllerScreen.
+ */
+public class SortedItemIndex {
+    private final List<ItemVariant> byName = new ArrayList<>();
+    private final List<ItemVariant> byCount = new ArrayList<>();
+    private long byNameVersion = -1;
+    private boolean byCountValid = false;
+
+    // Item names don't change at runtime
+    private final Map<Item, String> names = new HashMap<>();
+
+    /**
+     * @param keyVersion changes whenever a variant is added or removed
+     */
+    public List<ItemVariant> get(SortMode mode, Map<ItemVariant, Long> items, long keyVersion) {
+        return switch (mode) {
+            case NAME -> {
+                if (byNameVersion != keyVersion) {
+                    byName.clear();
+                    byName.addAll(items.keySet());
+                    byName.sort(Comparator.comparing(v -> getName(v.getItem())));
+                    byNameVersion = keyVersion;
+                }
+                yield byName;
+            }
+            case COUNT -> {
+                if (!byCountValid) {
+                    byCount.clear();
+                    byCount.addAll(items.keySet());
+                    byCount.sort((a, b) -> compareByCount(a, items.getOrDefault(a, 0L), b, items.getOrDefault(b, 0L)));
+                    byCountValid = true;
+                }
+                yield byCount;
+            }
+        };
+    }
+
+    /**
+     * Move a variant to its new place in count order. {@code items} must
+     * already hold the new count; 0 means the variant left (or never entered).
+     */
+    public void onCountChanged(ItemVariant variant, long oldCount, long newCount, Map<ItemVariant, Long> items) {
+        if (!byCountValid) return;
+
+        if (oldCount > 0) {
+            int i = search(byCount, variant, oldCount, items);
+            // Not where its old count says - fall back to a full sort on next use
+            if (i >= byCount.size() || !byCount.get(i).equals(variant)) {
+                byCountValid = false;
+                return;
+            }
+            byCount.remove(i);
+        }
+        if (newCount > 0) {
+            byCount.add(search(byCount, variant, newCount, items), variant);
+        }
+    }
+
+    /**
+     * Insert a variant into a list that is already in count order (e.g. a
+     * filtered subset of {@link #get}), using the counts in {@code items}
+     */
+    public void insertByCount(List<ItemVariant> list, ItemVariant variant, Map<ItemVariant, Long> items) {
+        list.add(search(list, variant, items.getOrDefault(variant, 0L), items), variant);
+    }
+
+    /**
+     * First index whose entry doesn't sort before (variant, count).
+     * Other entries are compared by their count in {@code items}.
+     */
+    private int search(List<ItemVariant> list, ItemVariant variant, long count, Map<ItemVariant, Long> items) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            ItemVariant other = list.get(mid);
+            long otherCount = other.equals(variant) ? count : items.getOrDefault(other, 0L);
+            if (compareByCount(other, otherCount, variant, count) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Highest count first; ties by name, then hash so the order is total
+     */
+    private int compareByCount(ItemVariant a, long countA, ItemVariant b, long countB) {
+        int result = Long.compare(countB, countA);
+        if (result != 0) return result;
+        result = getName(a.getItem()).compareTo(getName(b.getItem()));
+        if (result != 0) return result;
+        return Integer.compare(a.hashCode(), b.hashCode());
+    }
+
+    public String getName(Item item) {
+        return names.computeIfAbsent(item, i -> i.getName().getString());
+    }
+
+    /**
+     * Counts changed without going through onCountChanged - re-sort on next use
+     */
+    public void invalidateCounts() {
+        byCountValid = false;
+    }
+
+    public void clear() {
+        byName.clear();
+        byCount.clear();
+        byNameVersion = -1;
+        byCountValid = false;
+    }
+}
@@ -0,0 +1,86 @@
+package net.shaddii.smartsorter.util;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.tag.TagKey;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry-wide cache of item tags as compact bitsets.
+ *
+ * Every item tag seen gets an interned integer ID; each Item's tags are
+ * stored once as a BitSet of those IDs. Tag matching becomes bit operations
+ * instead of streaming registry entries into fresh HashSets.
+ *
+ * Cleared on every tag reload ({@link #invalidate()}); holders of derived
+ * data compare {@link #generation()} to know when to recompute.
+ */
+public final class TagIndex {
+    private TagIndex() {}
+
+    private static final BitSet NO_TAGS = new BitSet(0);
+
+    private static final Map<TagKey<Item>, Integer> tagIds = new HashMap<>();
+    private static final Map<Item, BitSet> itemTags = new ConcurrentHashMap<>();
+    private static volatile int generation = 0;
+
+    /**
+     * Tag bits of an item. Shared instance - don't modify.
+     */
+    public static BitSet tagsOf(Item item) {
+        BitSet cached = itemTags.get(item);
+        if (cached != null) return cached;
+
+        BitSet bits = new BitSet();
+        synchronized (tagIds) {
+            Registries.ITEM.getEntry(item).streamTags()
+                    .forEach(tag -> bits.set(tagIds.computeIfAbsent(tag, t -> tagIds.size())));
+
+            // Cached under the same lock as invalidate(), so a reload can't
+            // slip in between and leave bits with old tag IDs behind
+            BitSet result = bits.isEmpty() ? NO_TAGS : bits;
+            itemTags.put(item, result);
+            return result;
+        }
+    }
+
+    /**
+     * Whether an item's tags match a tag union: any shared tag, or all of
+     * the item's tags when {@code requireAll} is set.
+     */
+    public static boolean matches(BitSet incoming, BitSet union, boolean requireAll) {
+        if (incoming.isEmpty() || union.isEmpty()) return false;
+
+        if (!requireAll) {
+            return incoming.intersects(union);
+        }
+
+        for (int i = incoming.nextSetBit(0); i >= 0; i = incoming.nextSetBit(i + 1)) {
+            if (!union.get(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Incremented on every reload. Cached unions built under an older
+     * generation must be rebuilt.
+     */
+    public static int generation() {
+        return generation;
+    }
+
+    /**
+     * Drop all cached tag data (tags were reloaded)
+     */
+    public static void invalidate() {
+        synchronized (tagIds) {
+            itemTags.clear();
+            tagIds.clear();
+            generation++;
+        }
+    }
+}
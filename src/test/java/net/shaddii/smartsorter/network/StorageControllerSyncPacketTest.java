@@ -0,0 +1,143 @@
+package net.shaddii.smartsorter.network;
+
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.util.math.BlockPos;
+import net.shaddii.smartsorter.util.FuelFilterMode;
+import net.shaddii.smartsorter.util.ProcessProbeConfig;
+import net.shaddii.smartsorter.util.RecipeFilterMode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageControllerSyncPacketTest {
+    private static ItemVariant stone;
+    private static ItemVariant dirt;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        stone = ItemVariant.of(Items.STONE);
+        dirt = ItemVariant.of(Items.DIRT);
+    }
+
+    private static StorageControllerSyncPacket.DeltaPayload roundTrip(StorageControllerSyncPacket.DeltaPayload payload) {
+        RegistryByteBuf buf = VariantPaletteTest.buffer();
+        StorageControllerSyncPacket.DeltaPayload.write(buf, payload);
+        StorageControllerSyncPacket.DeltaPayload read = StorageControllerSyncPacket.DeltaPayload.read(buf);
+        assertEquals(0, buf.readableBytes());
+        return read;
+    }
+
+    private static StorageControllerSyncPacket.DeltaPayload delta(int sequence, VariantPalette.Entries changes) {
+        return new StorageControllerSyncPacket.DeltaPayload(sequence, changes, 0, false, ItemStack.EMPTY, 10, 27);
+    }
+
+    @Test
+    void syncPayloadRoundTrip() {
+        VariantPalette server = new VariantPalette();
+        VariantPalette client = new VariantPalette();
+
+        ProcessProbeConfig config = new ProcessProbeConfig(new BlockPos(1, 64, -3), "minecraft:furnace");
+        config.customName = "Ores";
+        config.recipeFilter = RecipeFilterMode.RAW_METALS_ONLY;
+        config.fuelFilter = FuelFilterMode.ANY_FUEL;
+        config.itemsProcessed = 12;
+        config.index = 2;
+        Map<BlockPos, ProcessProbeConfig> configs = new HashMap<>(Map.of(config.position, config));
+
+        Map<ItemVariant, Long> items = new LinkedHashMap<>();
+        items.put(stone, 100L);
+        items.put(dirt, 3L);
+
+        RegistryByteBuf buf = VariantPaletteTest.buffer();
+        StorageControllerSyncPacket.SyncPayload.write(buf, new StorageControllerSyncPacket.SyncPayload(
+                7, server.encode(items), 55, configs, new ItemStack(Items.DIRT, 4), 5, 54));
+        StorageControllerSyncPacket.SyncPayload read = StorageControllerSyncPacket.SyncPayload.read(buf);
+        assertEquals(0, buf.readableBytes());
+
+        assertEquals(7, read.sequence());
+        client.define(read.items());
+        assertEquals(items, client.decode(read.items()));
+        assertEquals(55, read.storedXp());
+        assertEquals(5, read.freeSlots());
+        assertEquals(54, read.totalSlots());
+        assertTrue(ItemStack.areEqual(new ItemStack(Items.DIRT, 4), read.cursorStack()));
+
+        ProcessProbeConfig readConfig = read.probeConfigs().get(config.position);
+        assertEquals("minecraft:furnace", readConfig.machineType);
+        assertEquals("Ores", readConfig.customName);
+        assertEquals(RecipeFilterMode.RAW_METALS_ONLY, readConfig.recipeFilter);
+        assertEquals(FuelFilterMode.ANY_FUEL, readConfig.fuelFilter);
+        assertEquals(12, readConfig.itemsProcessed);
+        assertEquals(2, readConfig.index);
+    }
+
+    @Test
+    void deltaSequenceAppliesInOrder() {
+        VariantPalette server = new VariantPalette();
+        VariantPalette client = new VariantPalette();
+        Map<ItemVariant, Long> clientItems = new HashMap<>();
+
+        // Full sync first, then deltas numbered from it
+        RegistryByteBuf buf = VariantPaletteTest.buffer();
+        StorageControllerSyncPacket.SyncPayload.write(buf, new StorageControllerSyncPacket.SyncPayload(
+                1, server.encode(Map.of(stone, 10L)), 0, Map.of(), ItemStack.EMPTY, 10, 27));
+        StorageControllerSyncPacket.SyncPayload sync = StorageControllerSyncPacket.SyncPayload.read(buf);
+        client.define(sync.items());
+        clientItems.putAll(client.decode(sync.items()));
+
+        Map<ItemVariant, Long> changes = new LinkedHashMap<>();
+        changes.put(stone, 4L);
+        changes.put(dirt, 8L);
+        StorageControllerSyncPacket.DeltaPayload second = roundTrip(delta(2, server.encode(changes)));
+        // Stone was defined by the sync, only dirt is new
+        assertEquals(1, second.changes().definitions().size());
+
+        StorageControllerSyncPacket.DeltaPayload third = roundTrip(delta(3, server.encode(Map.of(stone, 0L))));
+        assertTrue(third.changes().definitions().isEmpty());
+
+        int lastSequence = sync.sequence();
+        for (StorageControllerSyncPacket.DeltaPayload payload : new StorageControllerSyncPacket.DeltaPayload[]{second, third}) {
+            assertEquals(lastSequence + 1, payload.sequence());
+            lastSequence = payload.sequence();
+
+            client.define(payload.changes());
+            client.decode(payload.changes()).forEach((variant, count) -> {
+                if (count > 0) {
+                    clientItems.put(variant, count);
+                } else {
+                    clientItems.remove(variant);
+                }
+            });
+        }
+
+        assertEquals(Map.of(dirt, 8L), clientItems);
+    }
+
+    @Test
+    void deltaCarriesStateFields() {
+        StorageControllerSyncPacket.DeltaPayload read = roundTrip(new StorageControllerSyncPacket.DeltaPayload(
+                Integer.MAX_VALUE, new VariantPalette().encode(Map.of()), 1234, true,
+                new ItemStack(Items.STONE, 32), 0, 108));
+
+        assertEquals(Integer.MAX_VALUE, read.sequence());
+        assertEquals(1234, read.storedXp());
+        assertTrue(read.resetConfigs());
+        assertTrue(ItemStack.areEqual(new ItemStack(Items.STONE, 32), read.cursorStack()));
+        assertEquals(0, read.freeSlots());
+        assertEquals(108, read.totalSlots());
+        assertTrue(read.changes().definitions().isEmpty());
+    }
+}
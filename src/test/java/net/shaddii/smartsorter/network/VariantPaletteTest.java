@@ -0,0 +1,114 @@
+package net.shaddii.smartsorter.network;
+
+import io.netty.buffer.Unpooled;
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.Items;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.Registries;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VariantPaletteTest {
+    private static ItemVariant stone;
+    private static ItemVariant dirt;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        stone = ItemVariant.of(Items.STONE);
+        dirt = ItemVariant.of(Items.DIRT);
+    }
+
+    static RegistryByteBuf buffer() {
+        return new RegistryByteBuf(Unpooled.buffer(), DynamicRegistryManager.of(Registries.REGISTRIES));
+    }
+
+    private static VariantPalette.Entries roundTrip(VariantPalette.Entries entries) {
+        RegistryByteBuf buf = buffer();
+        entries.write(buf);
+        return VariantPalette.Entries.read(buf);
+    }
+
+    private static Map<ItemVariant, Long> counts(Object... pairs) {
+        Map<ItemVariant, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put((ItemVariant) pairs[i], (Long) pairs[i + 1]);
+        }
+        return map;
+    }
+
+    @Test
+    void variantsAreDefinedOnlyOnce() {
+        VariantPalette server = new VariantPalette();
+
+        VariantPalette.Entries first = server.encode(counts(stone, 5L));
+        assertEquals(0, first.firstNewId());
+        assertEquals(List.of(stone), first.definitions());
+
+        VariantPalette.Entries second = server.encode(counts(stone, 6L, dirt, 1L));
+        assertEquals(1, second.firstNewId());
+        assertEquals(List.of(dirt), second.definitions());
+        assertEquals(0, server.find(stone));
+        assertEquals(1, server.find(dirt));
+    }
+
+    @Test
+    void clientDecodesOverTheWire() {
+        VariantPalette server = new VariantPalette();
+        VariantPalette client = new VariantPalette();
+
+        VariantPalette.Entries first = roundTrip(server.encode(counts(stone, 5L)));
+        client.define(first);
+        assertEquals(Map.of(stone, 5L), client.decode(first));
+
+        // Only an id for stone this time
+        VariantPalette.Entries second = roundTrip(server.encode(counts(stone, 0L, dirt, 3L)));
+        client.define(second);
+        assertEquals(Map.of(stone, 0L, dirt, 3L), client.decode(second));
+    }
+
+    @Test
+    void droppedPacketStillDefinesIds() {
+        VariantPalette server = new VariantPalette();
+        VariantPalette client = new VariantPalette();
+
+        // Counts thrown away (e.g. a delta after a sequence gap), definitions kept
+        client.define(roundTrip(server.encode(counts(stone, 5L))));
+
+        VariantPalette.Entries next = roundTrip(server.encode(counts(stone, 7L)));
+        client.define(next);
+        assertEquals(Map.of(stone, 7L), client.decode(next));
+    }
+
+    @Test
+    void refsUseIdsOnlyForKnownVariants() {
+        VariantPalette palette = new VariantPalette();
+        palette.encode(counts(stone, 1L));
+
+        VariantPalette.Ref known = VariantPalette.Ref.of(palette, stone);
+        assertEquals(0, known.id());
+
+        VariantPalette.Ref unknown = VariantPalette.Ref.of(palette, dirt);
+        assertTrue(unknown.id() < 0);
+
+        RegistryByteBuf buf = buffer();
+        known.write(buf);
+        unknown.write(buf);
+        assertEquals(stone, VariantPalette.Ref.read(buf).resolve(palette));
+        assertEquals(dirt, VariantPalette.Ref.read(buf).resolve(palette));
+
+        assertNull(palette.get(5));
+    }
+}
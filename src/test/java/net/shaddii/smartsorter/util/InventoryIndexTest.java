@@ -0,0 +1,171 @@
+package net.shaddii.smartsorter.util;
+
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.inventory.SimpleInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.text.Text;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InventoryIndexTest {
+    private static final ItemVariant STONE = ItemVariant.of(Items.STONE);
+    private static final ItemVariant DIRT = ItemVariant.of(Items.DIRT);
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    private static SimpleInventory inventory(ItemStack... stacks) {
+        SimpleInventory inv = new SimpleInventory(4);
+        for (int i = 0; i < stacks.length; i++) {
+            inv.setStack(i, stacks[i]);
+        }
+        return inv;
+    }
+
+    private static BitSet bits(int... slots) {
+        BitSet bits = new BitSet();
+        for (int slot : slots) bits.set(slot);
+        return bits;
+    }
+
+    @Test
+    void rebuildIndexesTotalsAndSlots() {
+        SimpleInventory inv = inventory(
+                new ItemStack(Items.STONE, 10), new ItemStack(Items.STONE, 64), new ItemStack(Items.DIRT, 5));
+        InventoryIndex index = new InventoryIndex();
+        index.rebuild(inv);
+
+        assertEquals(74, index.getCount(STONE));
+        assertEquals(5, index.getCount(DIRT));
+        assertEquals(3, index.getUsedSlots());
+        assertEquals(1, index.getFreeSlots());
+
+        assertEquals(bits(0, 1), index.getSlots(STONE));
+        // The full stack in slot 1 is not an insertion target
+        assertEquals(bits(0), index.getPartialSlots(STONE));
+        assertEquals(bits(3), index.getEmptySlots());
+        assertTrue(index.hasSpaceFor(STONE));
+
+        Map<ItemVariant, Long> changes = index.drainChanges();
+        assertEquals(Map.of(STONE, 74L, DIRT, 5L), changes);
+        assertFalse(index.hasChanges());
+    }
+
+    @Test
+    void refreshSlotRecordsNetDeltas() {
+        SimpleInventory inv = inventory(new ItemStack(Items.STONE, 10));
+        InventoryIndex index = new InventoryIndex();
+        index.rebuild(inv);
+        index.drainChanges();
+
+        // Same stack instance, count changed in place
+        inv.getStack(0).setCount(20);
+        index.refreshSlot(inv, 0);
+        assertEquals(Map.of(STONE, 10L), index.drainChanges());
+
+        // Changes that cancel out leave nothing to report
+        inv.getStack(0).setCount(25);
+        index.refreshSlot(inv, 0);
+        inv.getStack(0).setCount(20);
+        index.refreshSlot(inv, 0);
+        assertFalse(index.hasChanges());
+        assertEquals(20, index.getCount(STONE));
+    }
+
+    @Test
+    void inPlaceComponentEditIsDetected() {
+        SimpleInventory inv = inventory(new ItemStack(Items.STONE, 10));
+        InventoryIndex index = new InventoryIndex();
+        index.rebuild(inv);
+        index.drainChanges();
+
+        ItemStack stack = inv.getStack(0);
+        stack.set(DataComponentTypes.CUSTOM_NAME, Text.literal("Named"));
+        ItemVariant named = ItemVariant.of(stack);
+        index.refreshSlot(inv, 0);
+
+        assertEquals(Map.of(STONE, -10L, named, 10L), index.drainChanges());
+        assertNull(index.getSlots(STONE));
+        assertEquals(bits(0), index.getSlots(named));
+        assertFalse(index.containsVariant(STONE));
+        assertTrue(index.containsItem(Items.STONE));
+    }
+
+    @Test
+    void emptiedSlotUpdatesUsageAndItemSet() {
+        SimpleInventory inv = inventory(new ItemStack(Items.STONE, 10), new ItemStack(Items.DIRT, 5));
+        InventoryIndex index = new InventoryIndex();
+        index.rebuild(inv);
+        int itemVersion = index.getItemSetVersion();
+
+        // A count change is not an item set change
+        inv.getStack(0).setCount(11);
+        index.refreshSlot(inv, 0);
+        assertEquals(itemVersion, index.getItemSetVersion());
+
+        inv.setStack(1, ItemStack.EMPTY);
+        index.refreshSlot(inv, 1);
+        assertEquals(1, index.getUsedSlots());
+        assertEquals(bits(1, 2, 3), index.getEmptySlots());
+        assertFalse(index.containsItem(Items.DIRT));
+        assertTrue(index.getItemSetVersion() != itemVersion);
+    }
+
+    @Test
+    void verifyRollsThroughSlotsWithinBudget() {
+        SimpleInventory inv = new SimpleInventory(10);
+        InventoryIndex index = new InventoryIndex();
+        index.rebuild(inv);
+
+        // Changed behind the index's back
+        for (int i = 0; i < inv.size(); i++) {
+            inv.setStack(i, new ItemStack(Items.STONE));
+        }
+
+        assertTrue(index.verify(inv, 3));
+        assertEquals(3, index.getCount(STONE));
+        assertTrue(index.verify(inv, 3));
+        assertEquals(6, index.getCount(STONE));
+        assertTrue(index.verify(inv, 3));
+        assertEquals(9, index.getCount(STONE));
+        // Wraps around: the last slot, then slots already checked
+        assertTrue(index.verify(inv, 3));
+        assertEquals(10, index.getCount(STONE));
+    }
+
+    @Test
+    void verifyReportsSizeChange() {
+        InventoryIndex index = new InventoryIndex();
+        index.rebuild(new SimpleInventory(4));
+
+        assertFalse(index.verify(new SimpleInventory(5), 5));
+    }
+
+    @Test
+    void clearReportsEverythingRemoved() {
+        SimpleInventory inv = inventory(new ItemStack(Items.STONE, 10), new ItemStack(Items.DIRT, 5));
+        InventoryIndex index = new InventoryIndex();
+        index.rebuild(inv);
+        index.drainChanges();
+
+        index.clear();
+        assertEquals(Map.of(STONE, -10L, DIRT, -5L), index.drainChanges());
+        assertEquals(0, index.size());
+        assertEquals(0, index.getUsedSlots());
+    }
+}
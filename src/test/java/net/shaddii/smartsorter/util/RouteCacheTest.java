@@ -0,0 +1,77 @@
+package net.shaddii.smartsorter.util;
+
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RouteCacheTest {
+    private static final List<ItemVariant> VARIANTS = new ArrayList<>();
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        // More distinct variants than the cache holds
+        for (Item item : Registries.ITEM) {
+            ItemVariant variant = ItemVariant.of(item);
+            if (variant.isBlank()) continue;
+            VARIANTS.add(variant);
+            if (VARIANTS.size() == 100) break;
+        }
+    }
+
+    @Test
+    void putGetInvalidate() {
+        RouteCache<String> cache = new RouteCache<>();
+        ItemVariant a = VARIANTS.get(0);
+        ItemVariant b = VARIANTS.get(1);
+
+        cache.put(a, "north");
+        cache.put(b, "south");
+        assertEquals("north", cache.get(a));
+
+        cache.invalidate(a);
+        assertNull(cache.get(a));
+        assertEquals("south", cache.get(b));
+
+        cache.clear();
+        assertNull(cache.get(b));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        RouteCache<Integer> cache = new RouteCache<>();
+        for (int i = 0; i < 64; i++) {
+            cache.put(VARIANTS.get(i), i);
+        }
+
+        // Touch the oldest entry so the second oldest is evicted instead
+        assertEquals(0, cache.get(VARIANTS.get(0)));
+        cache.put(VARIANTS.get(64), 64);
+
+        assertEquals(0, cache.get(VARIANTS.get(0)));
+        assertNull(cache.get(VARIANTS.get(1)));
+        assertEquals(64, cache.get(VARIANTS.get(64)));
+    }
+
+    @Test
+    void tagReloadClearsEntries() {
+        RouteCache<String> cache = new RouteCache<>();
+        ItemVariant a = VARIANTS.get(0);
+        cache.put(a, "north");
+
+        TagIndex.invalidate();
+        assertNull(cache.get(a));
+    }
+}
@@ -0,0 +1,111 @@
+package net.shaddii.smartsorter.util;
+
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.Items;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SortedItemIndexTest {
+    private static ItemVariant stone;
+    private static ItemVariant dirt;
+    private static ItemVariant sand;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        stone = ItemVariant.of(Items.STONE);
+        dirt = ItemVariant.of(Items.DIRT);
+        sand = ItemVariant.of(Items.SAND);
+    }
+
+    /**
+     * Apply a count change the way the controller does: map first, then the index
+     */
+    private static void set(SortedItemIndex index, Map<ItemVariant, Long> items, ItemVariant variant, long count) {
+        long old = items.getOrDefault(variant, 0L);
+        if (count > 0) {
+            items.put(variant, count);
+        } else {
+            items.remove(variant);
+        }
+        index.onCountChanged(variant, old, count, items);
+    }
+
+    @Test
+    void countOrderFollowsChanges() {
+        Map<ItemVariant, Long> items = new HashMap<>(Map.of(stone, 30L, dirt, 20L, sand, 10L));
+        SortedItemIndex index = new SortedItemIndex();
+        assertEquals(List.of(stone, dirt, sand), index.get(SortMode.COUNT, items, 0));
+
+        set(index, items, sand, 50);
+        assertEquals(List.of(sand, stone, dirt), index.get(SortMode.COUNT, items, 0));
+
+        // Gone
+        set(index, items, stone, 0);
+        assertEquals(List.of(sand, dirt), index.get(SortMode.COUNT, items, 1));
+
+        // New
+        set(index, items, stone, 25);
+        assertEquals(List.of(sand, stone, dirt), index.get(SortMode.COUNT, items, 2));
+    }
+
+    @Test
+    void incrementalOrderMatchesFullSort() {
+        List<ItemVariant> variants = new ArrayList<>();
+        for (var item : List.of(Items.STONE, Items.DIRT, Items.SAND, Items.GRAVEL, Items.COBBLESTONE,
+                Items.OAK_LOG, Items.IRON_INGOT, Items.GOLD_INGOT, Items.DIAMOND, Items.COAL)) {
+            variants.add(ItemVariant.of(item));
+        }
+
+        Map<ItemVariant, Long> items = new HashMap<>();
+        SortedItemIndex index = new SortedItemIndex();
+        index.get(SortMode.COUNT, items, 0);
+
+        Random random = new Random(42);
+        for (int step = 0; step < 500; step++) {
+            ItemVariant variant = variants.get(random.nextInt(variants.size()));
+            // Small range so ties and removals happen often
+            set(index, items, variant, random.nextInt(6));
+
+            SortedItemIndex fresh = new SortedItemIndex();
+            assertEquals(fresh.get(SortMode.COUNT, items, 0), index.get(SortMode.COUNT, items, 0), "step " + step);
+        }
+    }
+
+    @Test
+    void insertByCountKeepsFilteredSubsetOrdered() {
+        Map<ItemVariant, Long> items = new HashMap<>(Map.of(stone, 30L, dirt, 20L, sand, 10L));
+        SortedItemIndex index = new SortedItemIndex();
+
+        // A viewer's matches without dirt; sand's count then rises past stone
+        List<ItemVariant> subset = new ArrayList<>(List.of(stone, sand));
+        subset.remove(sand);
+        items.put(sand, 40L);
+        index.insertByCount(subset, sand, items);
+
+        assertEquals(List.of(sand, stone), subset);
+    }
+
+    @Test
+    void nameOrderRefreshesOnKeyVersion() {
+        Map<ItemVariant, Long> items = new HashMap<>(Map.of(stone, 1L, dirt, 1L));
+        SortedItemIndex index = new SortedItemIndex();
+        assertEquals(List.of(dirt, stone), index.get(SortMode.NAME, items, 0));
+
+        items.put(sand, 1L);
+        // Same key version - cached list
+        assertEquals(2, index.get(SortMode.NAME, items, 0).size());
+        assertEquals(List.of(dirt, sand, stone), index.get(SortMode.NAME, items, 1));
+    }
+}